@@ -0,0 +1,127 @@
+package org.brukhman.jfa.benchmarks;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Random;
+
+import org.brukhman.jfa.automaton.NFA;
+import org.brukhman.jfa.automaton.State;
+
+/**
+ * The automata and inputs that the benchmarks run on.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Automata {
+
+	/**
+	 * The shapes of benchmarked automata.
+	 */
+	public enum Shape {
+
+		/**
+		 * <code>(a|b|...)*a(a|b|...){size}</code>, the classic automaton whose
+		 * determinization is exponential in <code>size</code>.
+		 */
+		ALTERNATION,
+
+		/**
+		 * <code>(a|a)*</code> repeated <code>size</code> times, where every
+		 * symbol keeps many redundant paths alive.
+		 */
+		REDUNDANT,
+
+		/**
+		 * A chain of <code>size</code> epsilon transitions in a loop over
+		 * the alphabet, which stresses epsilon closures.
+		 */
+		EPSILON_CHAIN;
+	}
+
+	/**
+	 * Use the static methods.
+	 */
+	private Automata() {
+	}
+
+	/**
+	 * Build an automaton of the given shape.
+	 *
+	 * @param shape
+	 * @param size
+	 * @param alphabetSize
+	 * @return
+	 */
+	static NFA create( Shape shape, int size, int alphabetSize ) {
+		NFA nfa = new NFA();
+		State start = nfa.newState();
+		nfa.makeInitial(start);
+		State end;
+		switch ( shape ) {
+		case ALTERNATION:
+			for ( int symbol = 0; symbol < alphabetSize; symbol++ ) {
+				nfa.addTransition(start, symbol(symbol), start);
+			}
+			end = nfa.newState();
+			nfa.addTransition(start, 'a', end);
+			for ( int i = 0; i < size; i++ ) {
+				State next = nfa.newState();
+				nfa.addTransition(end, 'a', (char)('a'+alphabetSize-1), next);
+				end = next;
+			}
+			break;
+		case REDUNDANT:
+			end = start;
+			for ( int i = 0; i < size; i++ ) {
+				State loop = nfa.newState();
+				nfa.addTransition(end, EPSILON, loop);
+				for ( int copy = 0; copy < 2; copy++ ) {
+					State middle = nfa.newState();
+					nfa.addTransition(loop, EPSILON, middle);
+					nfa.addTransition(middle, 'a', (char)('a'+alphabetSize-1), loop);
+				}
+				end = loop;
+			}
+			break;
+		default:
+			end = start;
+			for ( int i = 0; i < size; i++ ) {
+				State next = nfa.newState();
+				nfa.addTransition(end, EPSILON, next);
+				end = next;
+			}
+			nfa.addTransition(end, 'a', (char)('a'+alphabetSize-1), start);
+			break;
+		}
+		nfa.makeFinal(end);
+		return nfa;
+	}
+
+	/**
+	 * Returns a random input over the first symbols of the alphabet.
+	 *
+	 * @param length
+	 * @param alphabetSize
+	 * @return
+	 */
+	static String input( int length, int alphabetSize ) {
+		Random random = new Random(length ^ alphabetSize);
+		StringBuilder input = new StringBuilder(length);
+		for ( int i = 0; i < length; i++ ) {
+			input.append( symbol(random.nextInt(alphabetSize)) );
+		}
+		return input.toString();
+	}
+
+	/**
+	 * Returns the symbol with the given number.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	private static char symbol( int symbol ) {
+		return (char)('a' + symbol);
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.brukhman.jfa.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that allocation rates are
+ * reported next to every score.  Takes the usual JMH command line.
+ *
+ * @author jbrukh
+ *
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * Use the main method.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	public static void main( String[] args ) throws RunnerException, CommandLineOptionException {
+		new Runner(
+				new OptionsBuilder()
+						.parent(new CommandLineOptions(args))
+						.addProfiler(GCProfiler.class)
+						.build()
+		).run();
+	}
+
+}
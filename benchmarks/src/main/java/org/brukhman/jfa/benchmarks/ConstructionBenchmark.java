@@ -0,0 +1,80 @@
+package org.brukhman.jfa.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.brukhman.jfa.automaton.CompiledDFA;
+import org.brukhman.jfa.automaton.DeterministicTable;
+import org.brukhman.jfa.automaton.EpsilonEliminator;
+import org.brukhman.jfa.automaton.NFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building automata and transforming them.
+ *
+ * @author jbrukh
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+
+	@Param({"ALTERNATION", "REDUNDANT", "EPSILON_CHAIN"})
+	public Automata.Shape shape;
+
+	@Param({"4", "12"})
+	public int size;
+
+	@Param({"2", "26"})
+	public int alphabetSize;
+
+	private NFA nfa;
+	private DeterministicTable deterministic;
+	private CompiledDFA compiled;
+
+	@Setup
+	public void setUp() {
+		nfa = Automata.create(shape, size, alphabetSize);
+		deterministic = nfa.determinize();
+		compiled = deterministic.compile();
+	}
+
+	@Benchmark
+	public NFA build() {
+		return Automata.create(shape, size, alphabetSize);
+	}
+
+	@Benchmark
+	public NFA eliminateEpsilons() {
+		return EpsilonEliminator.eliminate(nfa);
+	}
+
+	@Benchmark
+	public DeterministicTable determinize() {
+		return nfa.determinize();
+	}
+
+	@Benchmark
+	public CompiledDFA compile() {
+		return deterministic.compile();
+	}
+
+	@Benchmark
+	public CompiledDFA minimize() {
+		return compiled.minimize();
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.brukhman.jfa.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.brukhman.jfa.automaton.NFA;
+import org.brukhman.jfa.automaton.NondeterministicTraverser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures epsilon closures on long epsilon chains and on redundant loops.
+ *
+ * @author jbrukh
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpsilonClosureBenchmark {
+
+	@Param({"REDUNDANT", "EPSILON_CHAIN"})
+	public Automata.Shape shape;
+
+	@Param({"16", "256", "4096"})
+	public int size;
+
+	private NondeterministicTraverser traverser;
+
+	@Setup
+	public void setUp() {
+		NFA nfa = Automata.create(shape, size, 2);
+		traverser = nfa.traverser();
+	}
+
+	@Benchmark
+	public Set<org.brukhman.jfa.automaton.State> epsilonClosure() {
+		return traverser.epsilonClosureInitial();
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.brukhman.jfa.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.brukhman.jfa.automaton.Automaton;
+import org.brukhman.jfa.automaton.BitParallelNFA;
+import org.brukhman.jfa.automaton.NFA;
+import org.brukhman.jfa.automaton.NondeterministicTraverser;
+import org.brukhman.jfa.automaton.Symbols;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every matching engine on the same automata and inputs.
+ * <p>
+ * {@link Engine#BIT_PARALLEL} fails to set up for automata with too many
+ * positions, and {@link Engine#COMPILED} for automata whose determinization
+ * is too large; JMH reports those combinations as errors and goes on.
+ *
+ * @author jbrukh
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+
+	/**
+	 * The matching engines.
+	 */
+	public enum Engine {
+
+		/** The set-based traversal of the table. */
+		TRAVERSER,
+
+		/** {@link NFA#compute}, whichever engine it picks. */
+		NFA,
+
+		SIMULATOR,
+		LAZY,
+		BIT_PARALLEL,
+		COMPILED;
+	}
+
+	@Param({"TRAVERSER", "NFA", "SIMULATOR", "LAZY", "BIT_PARALLEL", "COMPILED"})
+	public Engine engine;
+
+	@Param({"ALTERNATION", "REDUNDANT", "EPSILON_CHAIN"})
+	public Automata.Shape shape;
+
+	@Param({"4", "12"})
+	public int size;
+
+	@Param({"2", "26"})
+	public int alphabetSize;
+
+	@Param({"16", "1024", "65536"})
+	public int inputLength;
+
+	private NFA nfa;
+	private Automaton automaton;
+	private String input;
+
+	@Setup
+	public void setUp() {
+		nfa = Automata.create(shape, size, alphabetSize);
+		input = Automata.input(inputLength, alphabetSize);
+		switch ( engine ) {
+		case NFA:
+			automaton = nfa;
+			break;
+		case SIMULATOR:
+			automaton = nfa.simulator();
+			break;
+		case LAZY:
+			automaton = nfa.lazy();
+			break;
+		case BIT_PARALLEL:
+			automaton = BitParallelNFA.create(nfa);
+			if ( automaton == null ) {
+				throw new IllegalStateException("Too many positions for a bit-parallel automaton.");
+			}
+			break;
+		case COMPILED:
+			automaton = nfa.determinize().compile().minimize();
+			break;
+		default:
+			automaton = null;
+		}
+	}
+
+	@Benchmark
+	public boolean compute() {
+		if ( automaton != null ) {
+			return automaton.compute(input);
+		}
+		NondeterministicTraverser traverser = nfa.traverser();
+		Set<org.brukhman.jfa.automaton.State> states = traverser.epsilonClosureInitial();
+		for ( int i = 0; i < input.length(); i++ ) {
+			states = traverser.transition(states, input.charAt(i));
+		}
+		states = traverser.transition(states, Symbols.EPSILON);
+		for ( org.brukhman.jfa.automaton.State state : states ) {
+			if ( state.isFinal() ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Implements the buffer and reader forms of {@link Matcher#feed} in terms
+ * of the array and sequence forms.
+ *
+ * @author jbrukh
+ *
+ */
+abstract class AbstractMatcher implements Matcher {
+
+	/** The number of characters read from a reader at a time. */
+	private final static int BUFFER_SIZE = 8192;
+
+	@Override
+	public final Matcher feed( CharBuffer buffer ) {
+		checkNotNull(buffer, "Provide a buffer.");
+		if ( buffer.hasArray() ) {
+			feed(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
+		} else {
+			feed((CharSequence)buffer);
+		}
+		buffer.position(buffer.limit());
+		return this;
+	}
+
+	@Override
+	public final Matcher feed( Reader reader ) throws IOException {
+		checkNotNull(reader, "Provide a reader.");
+		char[] buffer = new char[BUFFER_SIZE];
+		int read;
+		while ( !isDead() && (read = reader.read(buffer)) != -1 ) {
+			feed(buffer, 0, read);
+		}
+		return this;
+	}
+
+}
@@ -1,16 +1,24 @@
 package org.brukhman.jfa.automaton;
 
 import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.base.Function;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
  * Provides base functionality for adding initial and final states,
  * and keeping a list of states for the table.
  * <p>
+ * Transitions on single symbols are kept in a table; transitions on ranges
+ * of symbols are kept in a sorted {@link RangeList} per state.
+ * <p>
  * 
  * @author jbrukh
  */
@@ -23,6 +31,17 @@ abstract class AbstractTable<T> implements Table {
 	protected Set<State>		states;
 	protected com.google.common.collect.Table<State,Character,T>
 								table;
+	protected Map<State,RangeList<T>>
+								ranges;
+
+	/** Intermediate states of surrogate pairs, by state and high surrogate. */
+	private Map<State,Map<Character,State>>
+								surrogates;
+	/** Intermediate states that accept every low surrogate, by state and target. */
+	private Map<State,Map<State,State>>
+								anySurrogates;
+	/** The name of the next state created by the table. */
+	private int					stateCount;
 
 	/**
 	 * Create a new instance.
@@ -31,6 +50,9 @@ abstract class AbstractTable<T> implements Table {
 		finalStates = Sets.newHashSet();
 		states 		= Sets.newHashSet();
 		table		= HashBasedTable.create();
+		ranges		= Maps.newHashMap();
+		surrogates	= Maps.newHashMap();
+		anySurrogates = Maps.newHashMap();
 	}
 	
 	@Override
@@ -41,6 +63,7 @@ abstract class AbstractTable<T> implements Table {
 		}
 		initialState = state;
 		state.setInitial(true);
+		modified();
 	}
 
 	@Override
@@ -53,6 +76,7 @@ abstract class AbstractTable<T> implements Table {
 		checkNotNull(state, "Provide a state.");
 		finalStates.add(state);
 		state.setFinal(true);
+		modified();
 	}
 	
 	@Override
@@ -60,6 +84,7 @@ abstract class AbstractTable<T> implements Table {
 		checkNotNull(state, "Provide a state.");
 		finalStates.remove( state );
 		state.setFinal(false);
+		modified();
 	}
 
 	@Override
@@ -71,8 +96,19 @@ abstract class AbstractTable<T> implements Table {
 	public void addStates(State... states) {
 		checkNotNull(states, "Provide states.");
 		for ( State state : states ) {
-			if ( state != null ) { this.states.add(state); }
+			if ( state != null ) {
+				checkArgument(state.belongsTo(this), "The state belongs to another table.");
+				this.states.add(state);
+			}
 		}
+		modified();
+	}
+
+	@Override
+	public final State newState() {
+		State state = State.create(this, stateCount++);
+		addStates(state);
+		return state;
 	}
 
 	@Override
@@ -85,6 +121,182 @@ abstract class AbstractTable<T> implements Table {
 		return ImmutableSet.copyOf( table.columnKeySet() );
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A supplementary code point is matched as a high surrogate followed by a
+	 * low surrogate.  The high surrogates of a range lead to intermediate states,
+	 * one per high surrogate whose low surrogates are only partly in the range,
+	 * and one shared by all high surrogates whose low surrogates are all in it.
+	 */
+	@Override
+	public void addTransition(State from, int first, int last, State to) {
+		checkNotNull(from);
+		checkNotNull(to);
+		checkArgument( first > EPSILON && first <= last && last <= Character.MAX_CODE_POINT,
+				"Provide a range of code points that does not include epsilon.");
+		checkState( states.contains(from) && states.contains(to), "States must be in the machine.");
+
+		if ( first <= Character.MAX_VALUE ) {
+			addRange(from, (char)first, (char)Math.min(last, Character.MAX_VALUE), to);
+		}
+		if ( last >= Character.MIN_SUPPLEMENTARY_CODE_POINT ) {
+			first = Math.max(first, Character.MIN_SUPPLEMENTARY_CODE_POINT);
+			char firstHigh = high(first), lastHigh = high(last);
+			if ( firstHigh == lastHigh ) {
+				addRange( surrogate(from, firstHigh), low(first), low(last), to );
+			} else {
+				if ( low(first) != Character.MIN_LOW_SURROGATE ) {
+					addRange( surrogate(from, firstHigh++), low(first), Character.MAX_LOW_SURROGATE, to );
+				}
+				if ( low(last) != Character.MAX_LOW_SURROGATE ) {
+					addRange( surrogate(from, lastHigh--), Character.MIN_LOW_SURROGATE, low(last), to );
+				}
+				if ( firstHigh <= lastHigh ) {
+					addRange( from, firstHigh, lastHigh, anySurrogate(from, to) );
+				}
+			}
+		}
+		modified();
+	}
+
+	/**
+	 * Add transitions on the given ranges of symbols, given as pairs of first
+	 * and last symbols.
+	 * 
+	 * @param from
+	 * @param ranges
+	 * @param to
+	 */
+	final void addTransitions( State from, char[] ranges, State to ) {
+		for ( int i = 0; i < ranges.length; i += 2 ) {
+			if ( ranges[i] == ranges[i+1] ) {
+				addTransition(from, ranges[i], to);
+			} else {
+				addTransition(from, (int)ranges[i], (int)ranges[i+1], to);
+			}
+		}
+	}
+
+	/**
+	 * Add a transition on every symbol in <code>first..last</code>.
+	 * 
+	 * @param from
+	 * @param first
+	 * @param last
+	 * @param to
+	 */
+	private final void addRange( State from, char first, char last, State to ) {
+		RangeList<T> list = ranges.get(from);
+		if ( list == null ) {
+			list = new RangeList<T>();
+			ranges.put(from, list);
+		}
+		list.put(first, last, rangeUpdate(to));
+	}
+
+	/**
+	 * Returns the intermediate state reached from the given state on the
+	 * given high surrogate.
+	 * 
+	 * @param from
+	 * @param high
+	 * @return
+	 */
+	private final State surrogate( State from, char high ) {
+		Map<Character,State> byHigh = surrogates.get(from);
+		if ( byHigh == null ) {
+			byHigh = Maps.newHashMap();
+			surrogates.put(from, byHigh);
+		}
+		State state = byHigh.get(high);
+		if ( state == null ) {
+			state = newState();
+			byHigh.put(high, state);
+			RangeList<T> list = ranges.get(from);
+			T previous = list == null ? null : list.get(high);
+			addRange(from, high, high, state);
+
+			// if the high surrogate no longer leads to a state that takes every
+			// low surrogate, the new state must take them to the same target
+			Map<State,State> byTarget = anySurrogates.get(from);
+			if ( previous != null && byTarget != null ) {
+				T current = ranges.get(from).get(high);
+				for ( Map.Entry<State,State> entry : byTarget.entrySet() ) {
+					State any = entry.getValue();
+					if ( leadsTo(previous, any) && !leadsTo(current, any) ) {
+						addRange(state, Character.MIN_LOW_SURROGATE, Character.MAX_LOW_SURROGATE, entry.getKey());
+					}
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the intermediate state that leads from the given state to the
+	 * given target on every low surrogate.
+	 * 
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private final State anySurrogate( State from, State to ) {
+		Map<State,State> byTarget = anySurrogates.get(from);
+		if ( byTarget == null ) {
+			byTarget = Maps.newHashMap();
+			anySurrogates.put(from, byTarget);
+		}
+		State state = byTarget.get(to);
+		if ( state == null ) {
+			state = newState();
+			byTarget.put(to, state);
+			addRange(state, Character.MIN_LOW_SURROGATE, Character.MAX_LOW_SURROGATE, to);
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the high surrogate of a supplementary code point.
+	 */
+	private final static char high( int codePoint ) {
+		return (char)(Character.MIN_HIGH_SURROGATE + ((codePoint-Character.MIN_SUPPLEMENTARY_CODE_POINT) >>> 10));
+	}
+
+	/**
+	 * Returns the low surrogate of a supplementary code point.
+	 */
+	private final static char low( int codePoint ) {
+		return (char)(Character.MIN_LOW_SURROGATE + ((codePoint-Character.MIN_SUPPLEMENTARY_CODE_POINT) & 0x3FF));
+	}
+
+	/**
+	 * Returns the function that adds a range transition to the given
+	 * state to the current transition value of a symbol, which may be
+	 * <code>null</code>.
+	 * 
+	 * @param to
+	 * @return
+	 */
+	protected abstract Function<T,T> rangeUpdate( State to );
+
+	/**
+	 * Returns true if and only if the given transition value leads to the
+	 * given state.
+	 * 
+	 * @param value
+	 * @param state
+	 * @return
+	 */
+	protected abstract boolean leadsTo( T value, State state );
+
+	/**
+	 * Called after every change to the table.  Subclasses that keep
+	 * derived data should drop it here.
+	 */
+	protected void modified() {
+	}
+	
 	/**
 	 * Transition this table.
 	 * 
@@ -0,0 +1,407 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Chars;
+
+/**
+ * Maps input characters to dense symbol classes, which are used as column
+ * indices of compiled transition tables.
+ * <p>
+ * Characters that behave identically in every state of a table share a class,
+ * so a compiled table has one column per class rather than one per character.
+ * Class <code>0</code> is reserved for all characters that do not appear
+ * in the table.  In tables built from transitions these lead to the dead
+ * state, but not necessarily in derived automata such as complements.
+ * <p>
+ * The mapping is stored as a sorted table of character ranges, searched by
+ * binary search, with a direct lookup array for the first 256 characters.
+ * Its size depends on the number of ranges, not on the width of the
+ * characters, so automata over wide Unicode ranges stay small.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Alphabet {
+
+	// FIELDS //
+
+	/** The class that all unknown characters map to. */
+	public final static int OTHER = 0;
+
+	/** The number of characters with a direct lookup. */
+	private final static int DIRECT = 256;
+
+	private final char[]	starts;
+	private final int[]		classes;
+	private final int		classCount;
+	private final int[]		direct;
+	private final int[]		representatives;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param starts the sorted first characters of the ranges, starting with <code>0</code>
+	 * @param classes the class of each range
+	 * @param classCount
+	 */
+	private Alphabet( char[] starts, int[] classes, int classCount ) {
+		this.starts 	= starts;
+		this.classes 	= classes;
+		this.classCount = classCount;
+		this.direct 	= new int[DIRECT];
+		for ( int c = 0; c < DIRECT; c++ ) {
+			direct[c] = classes[search((char)c)];
+		}
+		this.representatives = new int[classCount];
+		Arrays.fill(representatives, -1);
+		for ( int i = starts.length-1; i >= 0; i-- ) {
+			representatives[classes[i]] = starts[i];
+		}
+	}
+
+	/**
+	 * Create a new alphabet from its range table.
+	 *
+	 * @param starts the sorted first characters of the ranges, starting with <code>0</code>
+	 * @param classes the class of each range
+	 * @param classCount
+	 * @return
+	 */
+	final static Alphabet of( char[] starts, int[] classes, int classCount ) {
+		checkArgument(starts.length > 0 && starts[0] == 0 && starts.length == classes.length, "Invalid range table.");
+		return new Alphabet(starts, classes, classCount);
+	}
+
+	/**
+	 * Create a new alphabet where each of the given symbols is in a
+	 * class of its own.
+	 *
+	 * @param symbols
+	 * @return
+	 */
+	public final static Alphabet create( Collection<Character> symbols ) {
+		checkNotNull(symbols, "Provide symbols.");
+		char[] sorted = Chars.toArray(symbols);
+		Arrays.sort(sorted);
+		int[] classOf = new int[sorted.length];
+		for ( int i = 0; i < sorted.length; i++ ) {
+			classOf[i] = i+1;
+		}
+		return fromSymbols(sorted, classOf, sorted.length+1);
+	}
+
+	/**
+	 * Partition the symbols of the given table, including its range transitions,
+	 * into classes of symbols that have the same transitions in every state.
+	 * Epsilon is never part of a class.
+	 * <p>
+	 * The symbols and range ends split the characters into elementary intervals
+	 * whose characters all behave alike; intervals are then grouped by their
+	 * transitions.
+	 *
+	 * @param table
+	 * @return
+	 */
+	final static Alphabet partition( AbstractTable<?> table ) {
+		checkNotNull(table, "Provide a table.");
+		SortedSet<Integer> boundaries = Sets.newTreeSet();
+		for ( Character symbol : table.table.columnKeySet() ) {
+			if ( !symbol.equals(EPSILON) ) {
+				boundaries.add((int)symbol);
+				boundaries.add(symbol+1);
+			}
+		}
+		for ( RangeList<?> list : table.ranges.values() ) {
+			for ( int range = 0; range < list.size(); range++ ) {
+				boundaries.add((int)list.getFirst(range));
+				boundaries.add(list.getLast(range)+1);
+			}
+		}
+
+		Map<Map<State,?>,Integer> signatures = Maps.newHashMap();
+		char[] starts = new char[boundaries.size()+1];
+		int[] classes = new int[boundaries.size()+1];
+		int ranges = 1;
+		for ( int boundary : boundaries ) {
+			if ( boundary > Character.MAX_VALUE ) {
+				break;
+			}
+			char symbol = (char)boundary;
+			Map<State,Object> signature = Maps.newHashMap();
+			for ( State state : table.table.column(symbol).keySet() ) {
+				signature.put(state, table.transition(state, symbol));
+			}
+			for ( State state : table.ranges.keySet() ) {
+				Object to = table.transition(state, symbol);
+				if ( to != null && !(to instanceof Set<?> && ((Set<?>)to).isEmpty()) ) {
+					signature.put(state, to);
+				}
+			}
+			int symbolClass = OTHER;
+			if ( !signature.isEmpty() ) {
+				Integer known = signatures.get(signature);
+				if ( known == null ) {
+					known = signatures.size()+1;
+					signatures.put(signature, known);
+				}
+				symbolClass = known;
+			}
+			ranges = append(starts, classes, ranges, symbol, symbolClass);
+		}
+		return new Alphabet( Arrays.copyOf(starts, ranges), Arrays.copyOf(classes, ranges), signatures.size()+1 );
+	}
+
+	/**
+	 * Returns the alphabet whose classes are the nonempty intersections of
+	 * a class of one given alphabet with a class of the other, for reading
+	 * two automata at once.  The operand classes of a class are those of its
+	 * {@link #representative}; only the intersection of the two
+	 * {@link #OTHER} classes is {@link #OTHER}.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	final static Alphabet product( Alphabet first, Alphabet second ) {
+		checkNotNull(first, "Provide an alphabet.");
+		checkNotNull(second, "Provide an alphabet.");
+		int capacity = first.starts.length + second.starts.length;
+		char[] starts = new char[capacity];
+		int[] classes = new int[capacity];
+		Map<Long,Integer> pairs = Maps.newHashMap();
+		pairs.put(0L, OTHER);
+		int ranges = 0;
+		for ( int i = 0, j = 0; ; ) {
+			long pair = ((long)first.classes[i] << 32) | second.classes[j];
+			Integer symbolClass = pairs.get(pair);
+			if ( symbolClass == null ) {
+				symbolClass = pairs.size();
+				pairs.put(pair, symbolClass);
+			}
+			if ( ranges == 0 || classes[ranges-1] != symbolClass ) {
+				starts[ranges] 	= (char)Math.max(first.starts[i], second.starts[j]);
+				classes[ranges++] = symbolClass;
+			}
+			// move past whichever range ends first
+			char firstEnd = first.getRangeEnd(i), secondEnd = second.getRangeEnd(j);
+			if ( firstEnd == Character.MAX_VALUE && secondEnd == Character.MAX_VALUE ) {
+				break;
+			}
+			if ( firstEnd <= secondEnd ) {
+				i++;
+			}
+			if ( secondEnd <= firstEnd ) {
+				j++;
+			}
+		}
+		return new Alphabet( Arrays.copyOf(starts, ranges), Arrays.copyOf(classes, ranges), pairs.size() );
+	}
+
+	/**
+	 * Build the range table for the given sorted symbols and their classes.
+	 *
+	 * @param symbols
+	 * @param classOf
+	 * @param classCount
+	 * @return
+	 */
+	private final static Alphabet fromSymbols( char[] symbols, int[] classOf, int classCount ) {
+		char[] starts = new char[2*symbols.length+1];
+		int[] classes = new int[2*symbols.length+1];
+		int ranges = 1;
+		starts[0] = 0;
+		classes[0] = OTHER;
+		for ( int i = 0; i < symbols.length; i++ ) {
+			char symbol = symbols[i];
+			ranges = append(starts, classes, ranges, symbol, classOf[i]);
+			if ( symbol < Character.MAX_VALUE && (i+1 == symbols.length || symbols[i+1] != symbol+1) ) {
+				ranges = append(starts, classes, ranges, (char)(symbol+1), OTHER);
+			}
+		}
+		return new Alphabet( Arrays.copyOf(starts, ranges), Arrays.copyOf(classes, ranges), classCount );
+	}
+
+	/**
+	 * Append a range to a range table under construction, merging it with
+	 * the ranges before it where possible, and return the new number of ranges.
+	 *
+	 * @param starts
+	 * @param classes
+	 * @param ranges
+	 * @param start
+	 * @param symbolClass
+	 * @return
+	 */
+	private final static int append( char[] starts, int[] classes, int ranges, char start, int symbolClass ) {
+		if ( starts[ranges-1] == start ) {
+			// the previous range is empty
+			ranges--;
+		}
+		if ( ranges > 0 && classes[ranges-1] == symbolClass ) {
+			return ranges;
+		}
+		starts[ranges] = start;
+		classes[ranges] = symbolClass;
+		return ranges+1;
+	}
+
+	/**
+	 * Returns the class of the given character.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	public final int classOf( char symbol ) {
+		return symbol < DIRECT ? direct[symbol] : classes[search(symbol)];
+	}
+
+	/**
+	 * Returns the number of classes, including {@link #OTHER}.
+	 *
+	 * @return
+	 */
+	public final int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Returns a character that belongs to the given class, or <code>-1</code>
+	 * if there is none.
+	 *
+	 * @param symbolClass
+	 * @return
+	 */
+	public final int representative( int symbolClass ) {
+		checkElementIndex(symbolClass, classCount);
+		return representatives[symbolClass];
+	}
+
+	/**
+	 * Returns the ranges of characters in the given class, as pairs of
+	 * first and last characters.
+	 *
+	 * @param symbolClass
+	 * @return
+	 */
+	final char[] getRanges( int symbolClass ) {
+		checkElementIndex(symbolClass, classCount);
+		int count = 0;
+		for ( int i = 0; i < classes.length; i++ ) {
+			if ( classes[i] == symbolClass ) {
+				count++;
+			}
+		}
+		char[] result = new char[2*count];
+		count = 0;
+		for ( int i = 0; i < classes.length; i++ ) {
+			if ( classes[i] == symbolClass ) {
+				result[count++] = getRangeStart(i);
+				result[count++] = getRangeEnd(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the ranges of the given class as {@link #getRanges} does, but
+	 * without epsilon, which {@link #OTHER} contains and which cannot be a
+	 * transition symbol.
+	 *
+	 * @param symbolClass
+	 * @return
+	 */
+	final char[] getSymbolRanges( int symbolClass ) {
+		char[] ranges = getRanges(symbolClass);
+		if ( ranges.length > 0 && ranges[0] == EPSILON ) {
+			if ( ranges[1] == EPSILON ) {
+				return Arrays.copyOfRange(ranges, 2, ranges.length);
+			}
+			ranges[0]++;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the number of ranges in the range table.
+	 *
+	 * @return
+	 */
+	final int getRangeCount() {
+		return starts.length;
+	}
+
+	/**
+	 * Returns the first character of the given range.
+	 *
+	 * @param range
+	 * @return
+	 */
+	final char getRangeStart( int range ) {
+		return starts[range];
+	}
+
+	/**
+	 * Returns the last character of the given range.
+	 *
+	 * @param range
+	 * @return
+	 */
+	final char getRangeEnd( int range ) {
+		return range+1 < starts.length ? (char)(starts[range+1]-1) : Character.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the class of the given range.
+	 *
+	 * @param range
+	 * @return
+	 */
+	final int getRangeClass( int range ) {
+		return classes[range];
+	}
+
+	/**
+	 * Returns an alphabet in which every class <code>c</code> of this one is
+	 * replaced by <code>mapping[c]</code>.
+	 *
+	 * @param mapping
+	 * @param classCount
+	 * @return
+	 */
+	final Alphabet merge( int[] mapping, int classCount ) {
+		checkArgument(mapping.length == this.classCount && mapping[OTHER] == OTHER, "Invalid class mapping.");
+		char[] mergedStarts = new char[starts.length];
+		int[] mergedClasses = new int[starts.length];
+		int ranges = 0;
+		for ( int i = 0; i < starts.length; i++ ) {
+			int symbolClass = mapping[classes[i]];
+			if ( ranges == 0 || mergedClasses[ranges-1] != symbolClass ) {
+				mergedStarts[ranges] = starts[i];
+				mergedClasses[ranges++] = symbolClass;
+			}
+		}
+		return new Alphabet( Arrays.copyOf(mergedStarts, ranges), Arrays.copyOf(mergedClasses, ranges), classCount );
+	}
+
+	/**
+	 * Returns the index of the range that contains the given character.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	private final int search( char symbol ) {
+		int index = Arrays.binarySearch(starts, symbol);
+		return index >= 0 ? index : -index-2;
+	}
+
+}
@@ -0,0 +1,232 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+
+/**
+ * Simulates small nondeterministic tables with the active set packed into
+ * two <code>long</code> words.
+ * <p>
+ * The table is first made epsilon-free and then split into <i>positions</i>,
+ * pairs of a state and the symbol class it was entered on, plus one position
+ * for the initial state.  Since every position is entered on a single class,
+ * one step of the simulation is
+ * <pre>
+ *     active' = follow(active) &amp; entered[class]
+ * </pre>
+ * where <code>follow</code> is the union of the successors of the active
+ * positions, read eight positions at a time from precomputed tables as in
+ * Navarro and Raffinot's bit-parallel Glushkov simulation.  Each character
+ * therefore costs a handful of table lookups and bitwise operations.
+ * <p>
+ * At most {@link #MAX_POSITIONS} positions are supported.  Instances are
+ * immutable snapshots of the table at creation time, and are thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public final class BitParallelNFA implements Automaton {
+
+	// FIELDS //
+
+	/** The largest number of positions that fit in the active set. */
+	public final static int MAX_POSITIONS = 128;
+
+	private final Alphabet	alphabet;
+	private final int		chunks;
+	private final long[]	follow;
+	private final long[]	entered;
+	private final long		acceptLow, acceptHigh;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param alphabet
+	 * @param chunks
+	 * @param follow
+	 * @param entered
+	 * @param acceptLow
+	 * @param acceptHigh
+	 */
+	private BitParallelNFA( Alphabet alphabet, int chunks, long[] follow, long[] entered,
+			long acceptLow, long acceptHigh ) {
+		this.alphabet 	= alphabet;
+		this.chunks 	= chunks;
+		this.follow 	= follow;
+		this.entered 	= entered;
+		this.acceptLow 	= acceptLow;
+		this.acceptHigh = acceptHigh;
+	}
+
+	/**
+	 * Returns a bit-parallel automaton for the given table, or <code>null</code>
+	 * if the table has more than {@link #MAX_POSITIONS} positions.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static BitParallelNFA create( NondeterministicTable table ) {
+		checkNotNull(table, "Provide a table.");
+		IndexedNFA nfa = IndexedNFA.of( EpsilonEliminator.eliminate(table) );
+		int n = nfa.size(), k = nfa.classCount;
+
+		// position 0 is the initial state; the rest are (state, class) pairs
+		int[] position = new int[n*k];
+		Arrays.fill(position, -1);
+		int[] stateOf = new int[MAX_POSITIONS];
+		int[] classOf = new int[MAX_POSITIONS];
+		stateOf[0] = nfa.initial;
+		int count = 1;
+		for ( int state = 0; state < n; state++ ) {
+			for ( int symbolClass = 1; symbolClass < k; symbolClass++ ) {
+				for ( int to : nfa.step(state, symbolClass) ) {
+					if ( position[to*k+symbolClass] != -1 ) {
+						continue;
+					}
+					if ( count == MAX_POSITIONS ) {
+						return null;
+					}
+					stateOf[count] = to;
+					classOf[count] = symbolClass;
+					position[to*k+symbolClass] = count++;
+				}
+			}
+		}
+
+		long[] successors = new long[2*count];
+		long[] entered = new long[2*k];
+		long acceptLow = 0, acceptHigh = 0;
+		for ( int p = 0; p < count; p++ ) {
+			for ( int symbolClass = 1; symbolClass < k; symbolClass++ ) {
+				for ( int to : nfa.step(stateOf[p], symbolClass) ) {
+					int q = position[to*k+symbolClass];
+					successors[2*p + (q >>> 6)] |= 1L << q;
+				}
+			}
+			if ( p > 0 ) {
+				entered[2*classOf[p] + (p >>> 6)] |= 1L << p;
+			}
+			if ( nfa.accepting[stateOf[p]] ) {
+				if ( p < 64 ) {
+					acceptLow |= 1L << p;
+				} else {
+					acceptHigh |= 1L << p;
+				}
+			}
+		}
+
+		// follow[chunk][byte] is the union of successors of the byte's positions
+		int chunks = (count+7) >>> 3;
+		long[] follow = new long[chunks*256*2];
+		for ( int chunk = 0; chunk < chunks; chunk++ ) {
+			for ( int b = 1; b < 256; b++ ) {
+				int p = chunk*8 + Integer.numberOfTrailingZeros(b);
+				int index = (chunk*256+b)*2, rest = (chunk*256 + (b & (b-1)))*2;
+				if ( p < count ) {
+					follow[index] 	= follow[rest] | successors[2*p];
+					follow[index+1] = follow[rest+1] | successors[2*p+1];
+				} else {
+					follow[index] 	= follow[rest];
+					follow[index+1] = follow[rest+1];
+				}
+			}
+		}
+		return new BitParallelNFA(nfa.alphabet, chunks, follow, entered, acceptLow, acceptHigh);
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		checkNotNull(input, "Provide some input.");
+		return new BitParallelMatcher(null).feed(input).isAccepting();
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new BitParallelMatcher(null);
+	}
+
+	/**
+	 * Returns a new matcher in the initial state that tells the given
+	 * listener about every step.
+	 *
+	 * @param listener
+	 * @return
+	 */
+	final Matcher matcher( MatchListener listener ) {
+		return new BitParallelMatcher(listener);
+	}
+
+	/**
+	 * A matcher that keeps the active set of positions.
+	 */
+	private final class BitParallelMatcher extends AbstractMatcher {
+
+		private final MatchListener	listener;
+		private long 				low = 1L, high = 0L;
+
+		BitParallelMatcher( MatchListener listener ) {
+			this.listener = listener;
+		}
+
+		@Override
+		public final Matcher feed( char[] buffer, int offset, int length ) {
+			checkNotNull(buffer, "Provide a buffer.");
+			checkPositionIndexes(offset, offset+length, buffer.length);
+			for ( int i = offset, end = offset+length; i < end && (low|high) != 0; i++ ) {
+				step( alphabet.classOf(buffer[i]) );
+			}
+			return this;
+		}
+
+		@Override
+		public final Matcher feed( CharSequence input ) {
+			checkNotNull(input, "Provide some input.");
+			for ( int i = 0, length = input.length(); i < length && (low|high) != 0; i++ ) {
+				step( alphabet.classOf(input.charAt(i)) );
+			}
+			return this;
+		}
+
+		/**
+		 * Advance the active set on the given symbol class.
+		 *
+		 * @param symbolClass
+		 */
+		private final void step( int symbolClass ) {
+			long nextLow = 0, nextHigh = 0;
+			for ( int chunk = 0; chunk < chunks; chunk++ ) {
+				long word = chunk < 8 ? low >>> (chunk << 3) : high >>> ((chunk-8) << 3);
+				int index = ((chunk << 8) | (int)(word & 0xFF)) << 1;
+				nextLow 	|= follow[index];
+				nextHigh 	|= follow[index+1];
+			}
+			low 	= nextLow & entered[symbolClass << 1];
+			high 	= nextHigh & entered[(symbolClass << 1) + 1];
+			if ( listener != null ) {
+				listener.stepped(Long.bitCount(low) + Long.bitCount(high), 0);
+			}
+		}
+
+		@Override
+		public final boolean isAccepting() {
+			return ((low & acceptLow) | (high & acceptHigh)) != 0;
+		}
+
+		@Override
+		public final boolean isDead() {
+			return (low|high) == 0;
+		}
+
+		@Override
+		public final void reset() {
+			low 	= 1L;
+			high 	= 0L;
+		}
+	}
+
+}
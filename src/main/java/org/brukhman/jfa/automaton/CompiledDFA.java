@@ -0,0 +1,444 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A deterministic automaton compiled into a dense transition array.
+ * <p>
+ * States are numbered <code>0..n-1</code>, where state {@link #DEAD} is the
+ * rejecting sink that every missing transition leads to.  The transition for
+ * a state and a symbol class lives at <code>state * classCount + symbolClass</code>,
+ * so computing performs no boxing, hashing or allocation per character.
+ * <p>
+ * Instances are immutable: every field is final and the arrays are never
+ * written after construction, so an instance may be published by any means
+ * and shared by any number of threads without locking.  Only matchers,
+ * which each belong to one thread, have mutable state.
+ *
+ * @author jbrukh
+ *
+ */
+public final class CompiledDFA implements Automaton {
+
+	// FIELDS //
+
+	/** The dead state. */
+	public final static int DEAD = 0;
+
+	/** The smallest number of inputs that is worth computing on another thread. */
+	private final static int MIN_SLICE_SIZE = 256;
+
+	private final Alphabet		alphabet;
+	private final int			classCount;
+	private final int[]			transitions;
+	private final boolean[]		accepting;
+	private final int			initial;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param alphabet
+	 * @param transitions
+	 * @param accepting
+	 * @param initial
+	 */
+	CompiledDFA( Alphabet alphabet, int[] transitions, boolean[] accepting, int initial ) {
+		this.alphabet 		= alphabet;
+		this.classCount 	= alphabet.getClassCount();
+		this.transitions 	= transitions;
+		this.accepting 		= accepting;
+		this.initial 		= initial;
+	}
+
+	/**
+	 * Compile the given deterministic table.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static CompiledDFA compile( DeterministicTable table ) {
+		checkNotNull(table, "Provide a table.");
+		checkState( table.getInitial() != null, "There is no initial state in the machine.");
+		checkState( !table.getSymbols().contains(EPSILON), "A deterministic table cannot have epsilon transitions.");
+
+		Alphabet alphabet = Alphabet.partition(table);
+		int classCount = alphabet.getClassCount();
+
+		// number the states, leaving room for the dead state
+		List<State> states = ImmutableList.copyOf(table.getStates());
+		Map<State,Integer> index = Maps.newHashMapWithExpectedSize(states.size());
+		for ( State state : states ) {
+			index.put(state, index.size()+1);
+		}
+
+		int[] transitions = new int[(states.size()+1)*classCount];
+		boolean[] accepting = new boolean[states.size()+1];
+		for ( State state : states ) {
+			int from = index.get(state);
+			accepting[from] = state.isFinal();
+			for ( int symbolClass = 1; symbolClass < classCount; symbolClass++ ) {
+				State to = table.transition(state, (char)alphabet.representative(symbolClass));
+				transitions[from*classCount+symbolClass] = to == null ? DEAD : index.get(to);
+			}
+		}
+		return new CompiledDFA(alphabet, transitions, accepting, index.get(table.getInitial()));
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		return compute((CharSequence)input);
+	}
+
+	/**
+	 * Runs the automaton on the given input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final boolean compute( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		int state = initial;
+		for ( int i = 0, length = input.length(); i < length && state != DEAD; i++ ) {
+			state = transitions[state*classCount + alphabet.classOf(input.charAt(i))];
+		}
+		return accepting[state];
+	}
+
+	/**
+	 * Runs the automaton on each of the given inputs, returning the set of
+	 * indices of the accepted inputs.
+	 *
+	 * @param inputs
+	 * @return
+	 */
+	public final BitSet computeAll( List<? extends CharSequence> inputs ) {
+		checkNotNull(inputs, "Provide some inputs.");
+		BitSet accepted = new BitSet(inputs.size());
+		int index = 0;
+		for ( CharSequence input : inputs ) {
+			if ( compute(input) ) {
+				accepted.set(index);
+			}
+			index++;
+		}
+		return accepted;
+	}
+
+	/**
+	 * Runs the automaton on each of the given inputs, split into slices that
+	 * are computed on the given executor, returning the set of indices of the
+	 * accepted inputs.
+	 *
+	 * @param inputs a list with fast random access
+	 * @param executor
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public final BitSet computeAll( List<? extends CharSequence> inputs, ExecutorService executor )
+			throws InterruptedException {
+		checkNotNull(inputs, "Provide some inputs.");
+		checkNotNull(executor, "Provide an executor.");
+		int size = inputs.size();
+		int slices = Math.min(4*Runtime.getRuntime().availableProcessors(), (size+MIN_SLICE_SIZE-1)/MIN_SLICE_SIZE);
+		if ( slices <= 1 ) {
+			return computeAll(inputs);
+		}
+
+		List<Future<BitSet>> results = Lists.newArrayListWithCapacity(slices);
+		for ( int slice = 0; slice < slices; slice++ ) {
+			final List<? extends CharSequence> part = inputs.subList(
+					(int)((long)size*slice/slices), (int)((long)size*(slice+1)/slices)
+			);
+			results.add( executor.submit(new Callable<BitSet>() {
+				@Override
+				public BitSet call() {
+					return computeAll(part);
+				}
+			}) );
+		}
+
+		try {
+			BitSet accepted = new BitSet(size);
+			for ( int slice = 0; slice < slices; slice++ ) {
+				BitSet part = results.get(slice).get();
+				int offset = (int)((long)size*slice/slices);
+				for ( int i = part.nextSetBit(0); i >= 0; i = part.nextSetBit(i+1) ) {
+					accepted.set(offset+i);
+				}
+			}
+			return accepted;
+		} catch ( ExecutionException e ) {
+			throw new IllegalStateException("A slice could not be computed.", e.getCause());
+		} finally {
+			for ( Future<BitSet> result : results ) {
+				result.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Runs the automaton on the remaining bytes of the given buffer, each
+	 * read as a character in <code>0..255</code>, as for automata made by
+	 * {@link Utf8}.  The position of the buffer is not changed.
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	public final boolean compute( ByteBuffer bytes ) {
+		checkNotNull(bytes, "Provide some input.");
+		return accepting[ run(initial, bytes) ];
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new DFAMatcher();
+	}
+
+	/**
+	 * Returns a searcher for the matches of this automaton inside larger inputs.
+	 *
+	 * @return
+	 * @see Searcher
+	 */
+	public final Searcher searcher() {
+		return Searcher.create(this);
+	}
+
+	/**
+	 * Returns the state reached from the given state on the given symbol.
+	 *
+	 * @param state
+	 * @param symbol
+	 * @return
+	 */
+	public final int step( int state, char symbol ) {
+		return transitions[state*classCount + alphabet.classOf(symbol)];
+	}
+
+	/**
+	 * Returns the state reached from the given state on the remaining bytes
+	 * of the buffer, each read as a character in <code>0..255</code>.
+	 * The position of the buffer is not changed.
+	 *
+	 * @param state
+	 * @param bytes
+	 * @return
+	 */
+	final int run( int state, ByteBuffer bytes ) {
+		for ( int i = bytes.position(), limit = bytes.limit(); i < limit && state != DEAD; i++ ) {
+			state = transitions[state*classCount + alphabet.classOf((char)(bytes.get(i) & 0xFF))];
+		}
+		return state;
+	}
+
+	/**
+	 * Returns true if and only if the given state is accepting.
+	 *
+	 * @param state
+	 * @return
+	 */
+	public final boolean isAccepting( int state ) {
+		return accepting[state];
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return
+	 */
+	public final int getInitial() {
+		return initial;
+	}
+
+	/**
+	 * Returns the number of states, including the dead state.
+	 *
+	 * @return
+	 */
+	public final int getStateCount() {
+		return accepting.length;
+	}
+
+	/**
+	 * Returns the minimal equivalent automaton.
+	 *
+	 * @return
+	 * @see Minimizer
+	 */
+	public final CompiledDFA minimize() {
+		return Minimizer.minimize(this);
+	}
+
+	/**
+	 * Returns the automaton that accepts exactly the inputs that this one
+	 * rejects.
+	 * <p>
+	 * Since {@link #DEAD} must stay a rejecting sink, transitions to it are
+	 * redirected to a new accepting sink, which also becomes the initial
+	 * state if this automaton starts out dead.
+	 *
+	 * @return
+	 */
+	public final CompiledDFA complement() {
+		int states = getStateCount(), sink = states;
+		int[] complement = new int[(states+1)*classCount];
+		for ( int i = classCount; i < complement.length; i++ ) {
+			int to = i < transitions.length ? transitions[i] : DEAD;
+			complement[i] = to == DEAD ? sink : to;
+		}
+		boolean[] flipped = new boolean[states+1];
+		for ( int state = 1; state <= states; state++ ) {
+			flipped[state] = state == sink || !accepting[state];
+		}
+		return new CompiledDFA(alphabet, complement, flipped, initial == DEAD ? sink : initial);
+	}
+
+	/**
+	 * Returns the lazy product that accepts what both this automaton and the
+	 * given one accept.
+	 *
+	 * @param other
+	 * @return
+	 * @see ProductDFA
+	 */
+	public final ProductDFA intersection( CompiledDFA other ) {
+		return ProductDFA.intersection(this, other);
+	}
+
+	/**
+	 * Returns the lazy product that accepts what this automaton or the given
+	 * one accepts.
+	 *
+	 * @param other
+	 * @return
+	 * @see ProductDFA
+	 */
+	public final ProductDFA union( CompiledDFA other ) {
+		return ProductDFA.union(this, other);
+	}
+
+	/**
+	 * Returns the lazy product that accepts what this automaton accepts and
+	 * the given one does not, in a single pass over the input.
+	 *
+	 * @param other
+	 * @return
+	 * @see ProductDFA
+	 */
+	public final ProductDFA difference( CompiledDFA other ) {
+		return ProductDFA.difference(this, other);
+	}
+
+	/**
+	 * Returns a deterministic table that is equivalent to this automaton,
+	 * leaving out the dead state.  If the initial state is the dead state,
+	 * the table has a single initial state that does not accept.
+	 *
+	 * @return
+	 */
+	public final DeterministicTable toTable() {
+		State[] states = new State[getStateCount()];
+		DeterministicTable table = new DeterministicTable();
+		for ( int state = 1; state < states.length; state++ ) {
+			states[state] = table.newState();
+			if ( accepting[state] ) {
+				table.makeFinal(states[state]);
+			}
+		}
+		for ( int symbolClass = Alphabet.OTHER; symbolClass < classCount; symbolClass++ ) {
+			char[] ranges = alphabet.getSymbolRanges(symbolClass);
+			for ( int state = 1; state < states.length; state++ ) {
+				int to = transitions[state*classCount+symbolClass];
+				if ( to != DEAD ) {
+					table.addTransitions(states[state], ranges, states[to]);
+				}
+			}
+		}
+		// the empty language still needs an initial state to compile
+		table.makeInitial( initial != DEAD ? states[initial] : table.newState() );
+		return table;
+	}
+
+	/**
+	 * Returns the alphabet.
+	 *
+	 * @return
+	 */
+	public final Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * Returns the transition array itself, which must not be modified.
+	 *
+	 * @return
+	 */
+	final int[] transitions() {
+		return transitions;
+	}
+
+	/**
+	 * A matcher that keeps the current state number.
+	 */
+	private final class DFAMatcher extends AbstractMatcher {
+
+		private int state = initial;
+
+		@Override
+		public final Matcher feed( char[] buffer, int offset, int length ) {
+			checkNotNull(buffer, "Provide a buffer.");
+			checkPositionIndexes(offset, offset+length, buffer.length);
+			int current = state;
+			for ( int i = offset, end = offset+length; i < end && current != DEAD; i++ ) {
+				current = transitions[current*classCount + alphabet.classOf(buffer[i])];
+			}
+			state = current;
+			return this;
+		}
+
+		@Override
+		public final Matcher feed( CharSequence input ) {
+			checkNotNull(input, "Provide some input.");
+			int current = state;
+			for ( int i = 0, length = input.length(); i < length && current != DEAD; i++ ) {
+				current = transitions[current*classCount + alphabet.classOf(input.charAt(i))];
+			}
+			state = current;
+			return this;
+		}
+
+		@Override
+		public final boolean isAccepting() {
+			return accepting[state];
+		}
+
+		@Override
+		public final boolean isDead() {
+			return state == DEAD;
+		}
+
+		@Override
+		public final void reset() {
+			state = initial;
+		}
+	}
+
+}
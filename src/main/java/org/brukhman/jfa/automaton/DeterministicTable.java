@@ -3,6 +3,8 @@ package org.brukhman.jfa.automaton;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.base.Function;
+
 /**
  * A deterministic transition table.
  * 
@@ -18,6 +20,7 @@ public class DeterministicTable extends AbstractTable<State> {
 		checkNotNull(to);
 		checkState( states.contains(from) && states.contains(to), "States must be in the machine.");
 		table.put(from, symbol, to);
+		modified();
 	}
 
 	@Override
@@ -34,7 +37,61 @@ public class DeterministicTable extends AbstractTable<State> {
 	public State transition(State from, Character symbol) {
 		checkNotNull(from);
 		checkNotNull(symbol);
-		return table.get(from, symbol);
+		State to = table.get(from, symbol);
+		if ( to == null ) {
+			RangeList<State> list = ranges.get(from);
+			if ( list != null ) {
+				to = list.get(symbol);
+			}
+		}
+		return to;
+	}
+
+	@Override
+	protected Function<State,State> rangeUpdate(final State to) {
+		return new Function<State,State>() {
+			@Override
+			public State apply(State current) {
+				return to;
+			}
+		};
+	}
+
+	@Override
+	protected boolean leadsTo(State value, State state) {
+		return state.equals(value);
+	}
+
+	/**
+	 * Returns a snapshot of this table that can compute with no checks and no
+	 * copying, and may be shared between threads.  This is the same as
+	 * {@link #compile()}.
+	 *
+	 * @return
+	 */
+	public CompiledDFA freeze() {
+		return compile();
+	}
+
+	/**
+	 * Compile this table into a dense, immutable automaton.  Later changes
+	 * to the table are not reflected in the result.
+	 * 
+	 * @return
+	 */
+	public CompiledDFA compile() {
+		return CompiledDFA.compile(this);
+	}
+
+	/**
+	 * Returns the minimal deterministic table that accepts the same
+	 * language as this one.
+	 * 
+	 * @return
+	 * @see Minimizer
+	 */
+	public DeterministicTable minimize() {
+		return compile().minimize().toTable();
 	}
 
 }
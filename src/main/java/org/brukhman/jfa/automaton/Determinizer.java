@@ -0,0 +1,123 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+/**
+ * Converts nondeterministic tables into equivalent deterministic tables
+ * by the subset construction.
+ * <p>
+ * Each state of the result corresponds to a {@link MultiState}, the
+ * epsilon-closed set of nondeterministic states that the machine can be in
+ * after reading some input.  Only reachable sets are constructed, and the
+ * empty set is left out, so missing transitions mean rejection.  Symbols
+ * are handled a class at a time, as given by {@link Alphabet#partition},
+ * so range transitions stay ranges.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Determinizer {
+
+	/** The default limit on the number of constructed states. */
+	public final static int DEFAULT_MAX_STATES = 100000;
+
+	/**
+	 * Use the static methods.
+	 */
+	private Determinizer() {
+	}
+
+	/**
+	 * Determinize the given table, constructing at most
+	 * {@link #DEFAULT_MAX_STATES} states.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static DeterministicTable determinize( NondeterministicTable table ) {
+		return determinize(table, DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Determinize the given table.
+	 *
+	 * @param table
+	 * @param maxStates the largest number of states the result may have
+	 * @return
+	 * @throws StateExplosionException if the result would have more than
+	 * 		<code>maxStates</code> states
+	 */
+	public final static DeterministicTable determinize( NondeterministicTable table, int maxStates ) {
+		checkNotNull(table, "Provide a table.");
+		checkArgument(maxStates > 0, "The state limit must be positive.");
+
+		NondeterministicTraverser traverser = table.traverser();
+		Alphabet alphabet = Alphabet.partition(table);
+		char[][] ranges = new char[alphabet.getClassCount()][];
+		for ( int symbolClass = 1; symbolClass < ranges.length; symbolClass++ ) {
+			ranges[symbolClass] = alphabet.getRanges(symbolClass);
+		}
+
+		DeterministicTable result = new DeterministicTable();
+		Map<MultiState,State> constructed = Maps.newHashMap();
+		Queue<MultiState> pending = new LinkedList<MultiState>();
+
+		MultiState initial = new MultiState( traverser.epsilonClosureInitial() );
+		result.makeInitial( construct(initial, result, constructed, pending, maxStates) );
+
+		while ( !pending.isEmpty() ) {
+			MultiState current = pending.remove();
+			State from = constructed.get(current);
+			for ( int symbolClass = 1; symbolClass < ranges.length; symbolClass++ ) {
+				char symbol = (char)alphabet.representative(symbolClass);
+				Set<State> to = traverser.transition(
+						traverser.transition(current.getName(), symbol),
+						EPSILON
+				);
+				if ( to.isEmpty() ) {
+					continue;
+				}
+				MultiState next = new MultiState(to);
+				State state = constructed.get(next);
+				if ( state == null ) {
+					state = construct(next, result, constructed, pending, maxStates);
+				}
+				result.addTransitions(from, ranges[symbolClass], state);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Add a state for the given multistate to the result.
+	 *
+	 * @param multiState
+	 * @param result
+	 * @param constructed
+	 * @param pending
+	 * @param maxStates
+	 * @return
+	 */
+	private final static State construct( MultiState multiState, DeterministicTable result,
+			Map<MultiState,State> constructed, Queue<MultiState> pending, int maxStates ) {
+		if ( constructed.size() >= maxStates ) {
+			throw new StateExplosionException(maxStates);
+		}
+		State state = result.newState();
+		if ( Iterables.any(multiState.getName(), State.isFinalPredicate) ) {
+			result.makeFinal(state);
+		}
+		constructed.put(multiState, state);
+		pending.add(multiState);
+		return state;
+	}
+}
@@ -0,0 +1,194 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Removes epsilon transitions from nondeterministic tables.
+ * <p>
+ * Epsilon closures are computed once for all states.  The strongly connected
+ * components of the epsilon graph are found with an iterative version of
+ * Tarjan's algorithm, which completes every component after the components it
+ * reaches, so each component's closure is its members plus the already known
+ * closures of its successors.  States on an epsilon cycle share one closure,
+ * and cycles cannot cause unbounded recursion.
+ *
+ * @author jbrukh
+ *
+ */
+public final class EpsilonEliminator {
+
+	/**
+	 * Use the static methods.
+	 */
+	private EpsilonEliminator() {
+	}
+
+	/**
+	 * Returns an equivalent table without epsilon transitions.
+	 * <p>
+	 * A state of the result moves on a symbol wherever any state of its
+	 * epsilon closure moves on that symbol, and it is final if its closure
+	 * contains a final state.  Only states reachable from the initial state
+	 * are kept, and the states of the given table are left untouched.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static NFA eliminate( NondeterministicTable table ) {
+		checkNotNull(table, "Provide a table.");
+		IndexedNFA nfa = IndexedNFA.of(table);
+		char[][] ranges = new char[nfa.classCount][];
+		for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+			ranges[symbolClass] = nfa.alphabet.getRanges(symbolClass);
+		}
+		Map<State,Integer> index = Maps.newHashMapWithExpectedSize(nfa.size());
+		for ( int i = 0; i < nfa.size(); i++ ) {
+			index.put(nfa.states[i], i);
+		}
+
+		NFA result = new NFA();
+		State[] created = new State[nfa.size()];
+		Queue<Integer> pending = new LinkedList<Integer>();
+
+		result.makeInitial( create(nfa, nfa.initial, result, created, pending) );
+		while ( !pending.isEmpty() ) {
+			int from = pending.remove();
+			for ( int member : nfa.closures[from] ) {
+				for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+					char symbol = (char)nfa.alphabet.representative(symbolClass);
+					for ( State to : table.transition(nfa.states[member], symbol) ) {
+						int target = index.get(to);
+						if ( created[target] == null ) {
+							create(nfa, target, result, created, pending);
+						}
+						result.addTransitions(created[from], ranges[symbolClass], created[target]);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Create the state of the result that corresponds to the given state.
+	 *
+	 * @param nfa
+	 * @param state
+	 * @param result
+	 * @param created
+	 * @param pending
+	 * @return
+	 */
+	private final static State create( IndexedNFA nfa, int state, NFA result,
+			State[] created, Queue<Integer> pending ) {
+		State copy = result.newState();
+		for ( int member : nfa.closures[state] ) {
+			if ( nfa.accepting[member] ) {
+				result.makeFinal(copy);
+				break;
+			}
+		}
+		created[state] = copy;
+		pending.add(state);
+		return copy;
+	}
+
+	/**
+	 * Compute the epsilon closure of every state from the epsilon successors of
+	 * every state.  Each closure is a sorted array that includes the state itself,
+	 * and states in the same strongly connected component share the same array.
+	 *
+	 * @param epsilons
+	 * @return
+	 */
+	final static int[][] closures( int[][] epsilons ) {
+		int n = epsilons.length;
+		int[][] closures 	= new int[n][];
+
+		// Tarjan's bookkeeping
+		int[] index 		= new int[n];
+		int[] low 			= new int[n];
+		int[] component 	= new int[n];
+		boolean[] onStack 	= new boolean[n];
+		int[] stack 		= new int[n];
+		int[] calls 		= new int[n];
+		int[] edge 			= new int[n];
+		int counter = 0, top = 0, components = 0;
+
+		// closure scratch space
+		boolean[] mark 		= new boolean[n];
+		int[] buffer 		= new int[n];
+
+		Arrays.fill(index, -1);
+		for ( int root = 0; root < n; root++ ) {
+			if ( index[root] != -1 ) {
+				continue;
+			}
+			int depth = 0;
+			calls[depth++] = root;
+			index[root] = low[root] = counter++;
+			stack[top++] = root;
+			onStack[root] = true;
+			edge[root] = 0;
+
+			while ( depth > 0 ) {
+				int v = calls[depth-1];
+				if ( edge[v] < epsilons[v].length ) {
+					int w = epsilons[v][edge[v]++];
+					if ( index[w] == -1 ) {
+						index[w] = low[w] = counter++;
+						stack[top++] = w;
+						onStack[w] = true;
+						edge[w] = 0;
+						calls[depth++] = w;
+					} else if ( onStack[w] ) {
+						low[v] = Math.min(low[v], index[w]);
+					}
+					continue;
+				}
+				depth--;
+				if ( depth > 0 ) {
+					int u = calls[depth-1];
+					low[u] = Math.min(low[u], low[v]);
+				}
+				if ( low[v] != index[v] ) {
+					continue;
+				}
+
+				// v is the root of a completed component
+				int c = components++;
+				int size = 0, bottom = top;
+				do {
+					int member = stack[--bottom];
+					onStack[member] = false;
+					component[member] = c;
+					if ( !mark[member] ) {
+						mark[member] = true;
+						buffer[size++] = member;
+					}
+				} while ( stack[bottom] != v );
+				for ( int i = bottom; i < top; i++ ) {
+					for ( int w : epsilons[stack[i]] ) {
+						if ( component[w] != c ) {
+							size = IndexedNFA.union(closures[w], mark, buffer, size);
+						}
+					}
+				}
+				int[] closure = IndexedNFA.sorted(buffer, size, mark);
+				for ( int i = bottom; i < top; i++ ) {
+					closures[stack[i]] = closure;
+				}
+				top = bottom;
+			}
+		}
+		return closures;
+	}
+
+}
@@ -0,0 +1,551 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Compares the languages of automata: equivalence, inclusion, emptiness
+ * and universality, with a counterexample where one is useful.
+ * <p>
+ * Equivalence is decided by Hopcroft and Karp's algorithm: pairs of states
+ * are explored breadth-first from the pair of initial states, and states that
+ * have been paired are merged in a union-find structure, so that a pair whose
+ * states are already known to be equivalent is never explored.  This visits
+ * at most as many pairs as the two automata have states together, and stops
+ * at the first pair that disagrees.  Inclusion explores the reachable pairs
+ * of the product instead, skipping pairs where the first automaton is dead.
+ * <p>
+ * Nondeterministic tables are determinized on the fly, as the exploration
+ * reaches their subsets, so only the subsets that matter are built.  Both
+ * automata are read with the product of their alphabets, one character per
+ * class; counterexamples are made of those characters and never contain
+ * epsilon.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Equivalence {
+
+	/**
+	 * Use the static methods.
+	 */
+	private Equivalence() {
+	}
+
+	/**
+	 * Returns true if the given automata accept the same inputs.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static boolean equivalent( CompiledDFA first, CompiledDFA second ) {
+		return counterexample(first, second) == null;
+	}
+
+	/**
+	 * Returns true if the given tables accept the same inputs.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static boolean equivalent( NondeterministicTable first, NondeterministicTable second ) {
+		return counterexample(first, second) == null;
+	}
+
+	/**
+	 * Returns an input that exactly one of the given automata accepts, or
+	 * <code>null</code> if they are equivalent.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static String counterexample( CompiledDFA first, CompiledDFA second ) {
+		return search( new DFAView(first), new DFAView(second), false );
+	}
+
+	/**
+	 * Returns an input that exactly one of the given tables accepts, or
+	 * <code>null</code> if they are equivalent.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static String counterexample( NondeterministicTable first, NondeterministicTable second ) {
+		return search( new SubsetView(first), new SubsetView(second), false );
+	}
+
+	/**
+	 * Returns true if every input that the first automaton accepts is
+	 * accepted by the second.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static boolean isIncluded( CompiledDFA first, CompiledDFA second ) {
+		return inclusionCounterexample(first, second) == null;
+	}
+
+	/**
+	 * Returns true if every input that the first table accepts is
+	 * accepted by the second.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static boolean isIncluded( NondeterministicTable first, NondeterministicTable second ) {
+		return inclusionCounterexample(first, second) == null;
+	}
+
+	/**
+	 * Returns an input that the first automaton accepts and the second
+	 * rejects, or <code>null</code> if there is none.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static String inclusionCounterexample( CompiledDFA first, CompiledDFA second ) {
+		return search( new DFAView(first), new DFAView(second), true );
+	}
+
+	/**
+	 * Returns an input that the first table accepts and the second
+	 * rejects, or <code>null</code> if there is none.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public final static String inclusionCounterexample( NondeterministicTable first, NondeterministicTable second ) {
+		return search( new SubsetView(first), new SubsetView(second), true );
+	}
+
+	/**
+	 * Returns true if the given automaton accepts nothing.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	public final static boolean isEmpty( CompiledDFA dfa ) {
+		return find( new DFAView(dfa), true ) == null;
+	}
+
+	/**
+	 * Returns true if the given table accepts nothing.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static boolean isEmpty( NondeterministicTable table ) {
+		return find( new SubsetView(table), true ) == null;
+	}
+
+	/**
+	 * Returns true if the given automaton accepts every input.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	public final static boolean isUniversal( CompiledDFA dfa ) {
+		return find( new DFAView(dfa), false ) == null;
+	}
+
+	/**
+	 * Returns true if the given table accepts every input.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static boolean isUniversal( NondeterministicTable table ) {
+		return find( new SubsetView(table), false ) == null;
+	}
+
+	/**
+	 * Explore pairs of states of the given automata for one that disagrees,
+	 * and return the input that reaches it, or <code>null</code>.
+	 *
+	 * @param first
+	 * @param second
+	 * @param inclusion whether only acceptance by the first automaton alone
+	 * 		disagrees, rather than acceptance by either alone
+	 * @return
+	 */
+	private final static String search( View first, View second, boolean inclusion ) {
+		Alphabet alphabet = Alphabet.product(first.alphabet, second.alphabet);
+		int[] symbols = symbols(alphabet);
+		int classCount = alphabet.getClassCount();
+		int[] firstClasses = new int[classCount], secondClasses = new int[classCount];
+		for ( int symbolClass = 0; symbolClass < classCount; symbolClass++ ) {
+			if ( symbols[symbolClass] >= 0 ) {
+				firstClasses[symbolClass] 	= first.alphabet.classOf((char)symbols[symbolClass]);
+				secondClasses[symbolClass] 	= second.alphabet.classOf((char)symbols[symbolClass]);
+			}
+		}
+
+		Trail trail = new Trail();
+		Set<Long> visited = Sets.newHashSet();
+		UnionFind merged = new UnionFind();
+		int initialFirst = first.initial(), initialSecond = second.initial();
+		trail.add(initialFirst, initialSecond, -1, 0);
+		visited.add( pair(initialFirst, initialSecond) );
+		merged.union( 2*initialFirst, 2*initialSecond+1 );
+
+		for ( int head = 0; head < trail.size; head++ ) {
+			int from = trail.firsts[head], to = trail.seconds[head];
+			boolean accepts = first.isAccepting(from), alsoAccepts = second.isAccepting(to);
+			if ( inclusion ? accepts && !alsoAccepts : accepts != alsoAccepts ) {
+				return trail.word(head);
+			}
+			if ( inclusion && from == CompiledDFA.DEAD ) {
+				continue;
+			}
+			for ( int symbolClass = 0; symbolClass < classCount; symbolClass++ ) {
+				if ( symbols[symbolClass] < 0 ) {
+					continue;
+				}
+				int nextFirst = first.step(from, firstClasses[symbolClass]);
+				int nextSecond = second.step(to, secondClasses[symbolClass]);
+				boolean fresh = inclusion
+						? visited.add( pair(nextFirst, nextSecond) )
+						: merged.union( 2*nextFirst, 2*nextSecond+1 );
+				if ( fresh ) {
+					trail.add(nextFirst, nextSecond, head, symbols[symbolClass]);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Explore the states of the given automaton for one that accepts or
+	 * rejects as asked, and return the input that reaches it, or <code>null</code>.
+	 *
+	 * @param view
+	 * @param accepting
+	 * @return
+	 */
+	private final static String find( View view, boolean accepting ) {
+		int[] symbols = symbols(view.alphabet);
+		Trail trail = new Trail();
+		BitSet visited = new BitSet();
+		trail.add(view.initial(), 0, -1, 0);
+		visited.set(view.initial());
+
+		for ( int head = 0; head < trail.size; head++ ) {
+			int from = trail.firsts[head];
+			if ( view.isAccepting(from) == accepting ) {
+				return trail.word(head);
+			}
+			if ( accepting && from == CompiledDFA.DEAD ) {
+				continue;
+			}
+			for ( int symbolClass = 0; symbolClass < symbols.length; symbolClass++ ) {
+				if ( symbols[symbolClass] < 0 ) {
+					continue;
+				}
+				int to = view.step(from, symbolClass);
+				if ( !visited.get(to) ) {
+					visited.set(to);
+					trail.add(to, 0, head, symbols[symbolClass]);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a character of each class of the given alphabet, or <code>-1</code>
+	 * for classes whose only character is epsilon.
+	 *
+	 * @param alphabet
+	 * @return
+	 */
+	private final static int[] symbols( Alphabet alphabet ) {
+		int[] symbols = new int[alphabet.getClassCount()];
+		Arrays.fill(symbols, -1);
+		for ( int range = 0; range < alphabet.getRangeCount(); range++ ) {
+			int symbolClass = alphabet.getRangeClass(range);
+			char first = alphabet.getRangeStart(range), last = alphabet.getRangeEnd(range);
+			if ( symbols[symbolClass] < 0 && last > Symbols.EPSILON ) {
+				symbols[symbolClass] = Math.max(first, Symbols.EPSILON+1);
+			}
+		}
+		return symbols;
+	}
+
+	/**
+	 * Returns the key of a pair of states.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	private final static long pair( int first, int second ) {
+		return ((long)first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * A deterministic automaton as seen by the exploration, with states
+	 * numbered from {@link CompiledDFA#DEAD}.
+	 */
+	private static abstract class View {
+
+		final Alphabet alphabet;
+
+		View( Alphabet alphabet ) {
+			this.alphabet = alphabet;
+		}
+
+		/**
+		 * Returns the initial state.
+		 *
+		 * @return
+		 */
+		abstract int initial();
+
+		/**
+		 * Returns the state reached from the given state on the given class.
+		 *
+		 * @param state
+		 * @param symbolClass
+		 * @return
+		 */
+		abstract int step( int state, int symbolClass );
+
+		/**
+		 * Returns true if the given state is accepting.
+		 *
+		 * @param state
+		 * @return
+		 */
+		abstract boolean isAccepting( int state );
+	}
+
+	/**
+	 * A compiled automaton, as it is.
+	 */
+	private final static class DFAView extends View {
+
+		private final CompiledDFA	dfa;
+		private final int[]			transitions;
+		private final int			classCount;
+
+		DFAView( CompiledDFA dfa ) {
+			super( checkNotNull(dfa, "Provide an automaton.").getAlphabet() );
+			this.dfa 			= dfa;
+			this.transitions 	= dfa.transitions();
+			this.classCount 	= alphabet.getClassCount();
+		}
+
+		@Override
+		final int initial() {
+			return dfa.getInitial();
+		}
+
+		@Override
+		final int step( int state, int symbolClass ) {
+			return transitions[state*classCount + symbolClass];
+		}
+
+		@Override
+		final boolean isAccepting( int state ) {
+			return dfa.isAccepting(state);
+		}
+	}
+
+	/**
+	 * A nondeterministic table, determinized as its subsets are reached.
+	 * Subset <code>0</code> is the empty set.
+	 */
+	private final static class SubsetView extends View {
+
+		private final IndexedNFA			nfa;
+		private final Map<IntArray,Integer>	index;
+		private final List<int[]>			subsets;
+		private final BitSet				accepting;
+		private final boolean[]				mark;
+		private final int[]					buffer;
+		private final int					initial;
+		private int[]						transitions;
+
+		SubsetView( NondeterministicTable table ) {
+			this( IndexedNFA.of( checkNotNull(table, "Provide a table.") ) );
+		}
+
+		private SubsetView( IndexedNFA nfa ) {
+			super(nfa.alphabet);
+			this.nfa 			= nfa;
+			this.index 			= Maps.newHashMap();
+			this.subsets 		= Lists.newArrayList();
+			this.accepting 		= new BitSet();
+			this.mark 			= new boolean[nfa.size()];
+			this.buffer 		= new int[nfa.size()];
+			this.transitions 	= new int[16*nfa.classCount];
+			intern(IndexedNFA.EMPTY);
+			this.initial 		= intern( nfa.closures[nfa.initial] );
+		}
+
+		@Override
+		final int initial() {
+			return initial;
+		}
+
+		@Override
+		final int step( int state, int symbolClass ) {
+			int position = state*nfa.classCount + symbolClass;
+			int to = transitions[position];
+			if ( to < 0 ) {
+				int size = 0;
+				for ( int member : subsets.get(state) ) {
+					size = IndexedNFA.union(nfa.step(member, symbolClass), mark, buffer, size);
+				}
+				to = intern( IndexedNFA.sorted(buffer, size, mark) );
+				transitions[position] = to;
+			}
+			return to;
+		}
+
+		@Override
+		final boolean isAccepting( int state ) {
+			return accepting.get(state);
+		}
+
+		/**
+		 * Returns the number of the given subset, numbering it if necessary.
+		 *
+		 * @param subset
+		 * @return
+		 */
+		private final int intern( int[] subset ) {
+			IntArray key = new IntArray(subset);
+			Integer state = index.get(key);
+			if ( state != null ) {
+				return state;
+			}
+			int number = subsets.size();
+			subsets.add(subset);
+			index.put(key, number);
+			for ( int member : subset ) {
+				if ( nfa.accepting[member] ) {
+					accepting.set(number);
+					break;
+				}
+			}
+			if ( (number+1)*nfa.classCount > transitions.length ) {
+				transitions = Arrays.copyOf(transitions, 2*transitions.length);
+			}
+			Arrays.fill(transitions, number*nfa.classCount, (number+1)*nfa.classCount, -1);
+			return number;
+		}
+	}
+
+	/**
+	 * The pairs found by an exploration, each with the pair and the
+	 * character it was reached from.
+	 */
+	private final static class Trail {
+
+		int[]	firsts	= new int[16];
+		int[]	seconds	= new int[16];
+		int[]	parents	= new int[16];
+		char[]	symbols	= new char[16];
+		int		size;
+
+		/**
+		 * Add a pair.
+		 *
+		 * @param first
+		 * @param second
+		 * @param parent the index of the pair it was reached from, or <code>-1</code>
+		 * @param symbol
+		 */
+		final void add( int first, int second, int parent, int symbol ) {
+			if ( size == firsts.length ) {
+				firsts 	= Arrays.copyOf(firsts, 2*size);
+				seconds = Arrays.copyOf(seconds, 2*size);
+				parents = Arrays.copyOf(parents, 2*size);
+				symbols = Arrays.copyOf(symbols, 2*size);
+			}
+			firsts[size] 	= first;
+			seconds[size] 	= second;
+			parents[size] 	= parent;
+			symbols[size++] = (char)symbol;
+		}
+
+		/**
+		 * Returns the input that reaches the given pair.
+		 *
+		 * @param pair
+		 * @return
+		 */
+		final String word( int pair ) {
+			StringBuilder word = new StringBuilder();
+			for ( int i = pair; parents[i] >= 0; i = parents[i] ) {
+				word.append(symbols[i]);
+			}
+			return word.reverse().toString();
+		}
+	}
+
+	/**
+	 * A union-find structure over non-negative integers, with path halving.
+	 */
+	private final static class UnionFind {
+
+		/** The parent of each element plus one, or <code>0</code> for roots. */
+		private int[] parents = new int[16];
+
+		/**
+		 * Merge the sets of the given elements, and return true if they
+		 * were different.
+		 *
+		 * @param first
+		 * @param second
+		 * @return
+		 */
+		final boolean union( int first, int second ) {
+			int firstRoot = find(first), secondRoot = find(second);
+			if ( firstRoot == secondRoot ) {
+				return false;
+			}
+			parents[firstRoot] = secondRoot+1;
+			return true;
+		}
+
+		/**
+		 * Returns the representative of the set of the given element.
+		 *
+		 * @param element
+		 * @return
+		 */
+		private final int find( int element ) {
+			if ( element >= parents.length ) {
+				parents = Arrays.copyOf(parents, Math.max(2*parents.length, element+1));
+			}
+			while ( parents[element] != 0 ) {
+				int parent = parents[element]-1;
+				if ( parents[parent] != 0 ) {
+					parents[element] = parents[parent];
+				}
+				element = parent;
+			}
+			return element;
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Runs compiled automata directly over the bytes of a file.
+ * <p>
+ * The file is memory-mapped with {@link FileChannel#map} one region at a
+ * time, so it is neither decoded nor copied to the heap, and files larger
+ * than a single mapping are supported.  Each byte <code>b</code> is read as
+ * the character <code>(char)(b &amp; 0xFF)</code>, so the automaton should be
+ * over bytes, such as one made by {@link Utf8}, or over ASCII.  Since
+ * <code>'\0'</code> is epsilon, a zero byte is never accepted.
+ *
+ * @author jbrukh
+ *
+ */
+public final class FileScanner {
+
+	/** The default number of bytes mapped at a time. */
+	public final static long DEFAULT_REGION_SIZE = 1L << 30;
+
+	/**
+	 * Use the static methods.
+	 */
+	private FileScanner() {
+	}
+
+	/**
+	 * Returns true if and only if the automaton accepts the bytes of the
+	 * given file.
+	 *
+	 * @param dfa
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public final static boolean matches( CompiledDFA dfa, File file ) throws IOException {
+		return matches(dfa, file, DEFAULT_REGION_SIZE);
+	}
+
+	/**
+	 * Returns true if and only if the automaton accepts the bytes of the
+	 * given file, mapping at most <code>regionSize</code> bytes at a time.
+	 *
+	 * @param dfa
+	 * @param file
+	 * @param regionSize
+	 * @return
+	 * @throws IOException
+	 */
+	public final static boolean matches( CompiledDFA dfa, File file, long regionSize ) throws IOException {
+		checkNotNull(dfa, "Provide an automaton.");
+		checkNotNull(file, "Provide a file.");
+		checkArgument(regionSize > 0 && regionSize <= Integer.MAX_VALUE, "The region size must be a positive int.");
+
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			int state = dfa.getInitial();
+			for ( long position = 0; position < size && state != CompiledDFA.DEAD; position += regionSize ) {
+				MappedByteBuffer region = channel.map(
+						FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size-position)
+				);
+				state = dfa.run(state, region);
+			}
+			return dfa.isAccepting(state);
+		} finally {
+			input.close();
+		}
+	}
+
+}
@@ -4,6 +4,10 @@ import com.google.common.base.Preconditions;
 
 /**
  * An automaton that the only thing that you can do is compute with.
+ * <p>
+ * This only hides the methods of the wrapped automaton, which may still be
+ * changed through other references.  For an automaton that is safe to share
+ * between threads, use a {@link CompiledDFA}.
  * 
  * @author jbrukh
  *
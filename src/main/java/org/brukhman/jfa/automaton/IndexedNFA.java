@@ -0,0 +1,177 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A snapshot of a nondeterministic table with states numbered <code>0..n-1</code>,
+ * which is what the array-based NFA engines run on.
+ * <p>
+ * Epsilon transitions are resolved up front: {@link #closures} holds the
+ * epsilon closure of every state, and {@link #steps} holds, for every state
+ * and symbol class, the epsilon-closed set of states reached by reading a
+ * symbol of that class.  All sets are sorted arrays.
+ *
+ * @author jbrukh
+ *
+ */
+final class IndexedNFA {
+
+	// FIELDS //
+
+	final static int[] EMPTY = new int[0];
+
+	final State[]	states;
+	final int		initial;
+	final boolean[]	accepting;
+	final Alphabet	alphabet;
+	final int		classCount;
+	final int[][]	closures;
+	final int[][]	steps;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param table
+	 */
+	private IndexedNFA( NondeterministicTable table ) {
+		checkNotNull(table, "Provide a table.");
+		checkState( table.getInitial() != null, "There is no initial state in the machine.");
+
+		states = table.getStates().toArray(new State[0]);
+		Map<State,Integer> index = Maps.newHashMapWithExpectedSize(states.length);
+		for ( State state : states ) {
+			index.put(state, index.size());
+		}
+		initial = index.get(table.getInitial());
+
+		accepting = new boolean[states.length];
+		for ( int i = 0; i < states.length; i++ ) {
+			accepting[i] = states[i].isFinal();
+		}
+
+		alphabet = Alphabet.partition(table);
+		classCount = alphabet.getClassCount();
+
+		int[][] epsilons = new int[states.length][];
+		for ( int i = 0; i < states.length; i++ ) {
+			epsilons[i] = indices( table.transition(states[i], EPSILON), index );
+		}
+		closures = EpsilonEliminator.closures(epsilons);
+
+		steps = new int[states.length*classCount][];
+		boolean[] mark = new boolean[states.length];
+		int[] buffer = new int[states.length];
+		for ( int i = 0; i < states.length; i++ ) {
+			steps[i*classCount] = EMPTY;
+			for ( int symbolClass = 1; symbolClass < classCount; symbolClass++ ) {
+				int[] targets = indices(
+						table.transition(states[i], (char)alphabet.representative(symbolClass)),
+						index
+				);
+				int size = 0;
+				for ( int target : targets ) {
+					size = union(closures[target], mark, buffer, size);
+				}
+				steps[i*classCount+symbolClass] = sorted(buffer, size, mark);
+			}
+		}
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param table
+	 * @return
+	 */
+	final static IndexedNFA of( NondeterministicTable table ) {
+		return new IndexedNFA(table);
+	}
+
+	/**
+	 * Returns the number of states.
+	 *
+	 * @return
+	 */
+	final int size() {
+		return states.length;
+	}
+
+	/**
+	 * Returns the states reached from the given state on the given class.
+	 *
+	 * @param state
+	 * @param symbolClass
+	 * @return
+	 */
+	final int[] step( int state, int symbolClass ) {
+		return steps[state*classCount+symbolClass];
+	}
+
+	/**
+	 * Add the given states to a set kept as a membership array and a list,
+	 * returning the new size of the list.
+	 *
+	 * @param states
+	 * @param mark
+	 * @param buffer
+	 * @param size
+	 * @return
+	 */
+	final static int union( int[] states, boolean[] mark, int[] buffer, int size ) {
+		for ( int state : states ) {
+			if ( !mark[state] ) {
+				mark[state] = true;
+				buffer[size++] = state;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Copy the set kept in the given buffer into a sorted array and clear
+	 * its membership marks.
+	 *
+	 * @param buffer
+	 * @param size
+	 * @param mark
+	 * @return
+	 */
+	final static int[] sorted( int[] buffer, int size, boolean[] mark ) {
+		if ( size == 0 ) {
+			return EMPTY;
+		}
+		int[] result = Arrays.copyOf(buffer, size);
+		Arrays.sort(result);
+		for ( int state : result ) {
+			mark[state] = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the indices of the given states.
+	 *
+	 * @param states
+	 * @param index
+	 * @return
+	 */
+	private final static int[] indices( Set<State> states, Map<State,Integer> index ) {
+		if ( states.isEmpty() ) {
+			return EMPTY;
+		}
+		int[] result = new int[states.size()];
+		int i = 0;
+		for ( State state : states ) {
+			result[i++] = index.get(state);
+		}
+		return result;
+	}
+
+}
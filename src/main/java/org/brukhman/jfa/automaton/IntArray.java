@@ -0,0 +1,38 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.Arrays;
+
+/**
+ * An <code>int[]</code> with value semantics, for use as a map key.
+ *
+ * @author jbrukh
+ *
+ */
+final class IntArray {
+
+	// FIELDS //
+
+	final int[] values;
+	final int hash;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param values
+	 */
+	IntArray( int[] values ) {
+		this.values = values;
+		this.hash = Arrays.hashCode(values);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		return obj instanceof IntArray && Arrays.equals(values, ((IntArray)obj).values);
+	}
+
+}
@@ -0,0 +1,370 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Runs a nondeterministic table as a deterministic automaton whose states are
+ * constructed on demand, while matching.
+ * <p>
+ * Each deterministic state is an epsilon-closed set of nondeterministic states
+ * together with its outgoing transitions, which are filled in the first time
+ * they are taken.  At most a fixed number of states are cached; when the cache
+ * is full it is flushed and rebuilt from the current state.  If flushes happen
+ * so often that the cache is not paying for itself, the remainder of the input
+ * is matched by an {@link NFASimulator}.
+ * <p>
+ * A {@link MatchListener} may be attached to measure computations and how
+ * often transitions are found in the cache.
+ * <p>
+ * Instances are snapshots of the table at creation time, and are not thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public final class LazyDFA implements Automaton {
+
+	// FIELDS //
+
+	/** The default number of cached states. */
+	public final static int DEFAULT_MAX_STATES = 10000;
+
+	/**
+	 * The cache is considered to be thrashing if fewer than this many characters
+	 * per cached state were read between two flushes.
+	 */
+	private final static int MIN_CHARS_PER_STATE = 10;
+
+	private final IndexedNFA			nfa;
+	private final LazyMatcher			matcher;
+	private final int					maxStates;
+	private final Map<DState,DState>	cache;
+	private final DState				dead;
+	private DState						start;
+
+	private final boolean[]				mark;
+	private final int[]					buffer;
+	private long						charsSinceFlush;
+	private int							flushes;
+	private MatchListener				listener;
+
+	/**
+	 * A cached deterministic state.
+	 */
+	private final static class DState {
+
+		final int[]		members;
+		final boolean	accepting;
+		final DState[]	next;
+		final int		hash;
+
+		DState( int[] members, boolean accepting, int classCount ) {
+			this.members 	= members;
+			this.accepting 	= accepting;
+			this.next		= new DState[classCount];
+			this.hash		= Arrays.hashCode(members);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			return obj instanceof DState && Arrays.equals(members, ((DState)obj).members);
+		}
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param table
+	 * @param maxStates
+	 */
+	private LazyDFA( NondeterministicTable table, int maxStates ) {
+		checkArgument(maxStates > 1, "The cache must hold at least two states.");
+		this.nfa 		= IndexedNFA.of(table);
+		this.maxStates 	= maxStates;
+		this.cache 		= Maps.newHashMap();
+		this.mark 		= new boolean[nfa.size()];
+		this.buffer 	= new int[nfa.size()];
+
+		this.dead 		= new DState(IndexedNFA.EMPTY, false, nfa.classCount);
+		Arrays.fill(dead.next, dead);
+		this.matcher	= new LazyMatcher();
+	}
+
+	/**
+	 * Create a new instance with the default cache size.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static LazyDFA create( NondeterministicTable table ) {
+		return new LazyDFA(table, DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param table
+	 * @param maxStates the largest number of cached states
+	 * @return
+	 */
+	public final static LazyDFA create( NondeterministicTable table, int maxStates ) {
+		return new LazyDFA(table, maxStates);
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		checkNotNull(input, "Provide some input.");
+		long start = listener != null ? System.nanoTime() : 0;
+		matcher.reset();
+		boolean accepted = matcher.feed(input).isAccepting();
+		if ( listener != null ) {
+			listener.computed(input.length(), System.nanoTime()-start, accepted);
+		}
+		return accepted;
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.  Matchers share the cache
+	 * of this instance, so they may only be used from the thread that uses it.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new LazyMatcher();
+	}
+
+	/**
+	 * Set the listener that is told about computations and cache lookups,
+	 * including those of matchers.
+	 *
+	 * @param listener the listener, or <code>null</code> to stop measuring
+	 */
+	public final void setListener( MatchListener listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the number of states currently cached.
+	 *
+	 * @return
+	 */
+	public final int getCachedStates() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of times the cache has been flushed.
+	 *
+	 * @return
+	 */
+	public final int getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * Compute, cache and link the transition of the given state.
+	 *
+	 * @param from
+	 * @param symbolClass
+	 * @return
+	 */
+	private final DState transition( DState from, int symbolClass ) {
+		int size = 0;
+		for ( int member : from.members ) {
+			size = IndexedNFA.union(nfa.step(member, symbolClass), mark, buffer, size);
+		}
+		int[] members = IndexedNFA.sorted(buffer, size, mark);
+
+		DState to = members.length == 0 ? dead : cache.get(new DState(members, false, 0));
+		if ( to == null ) {
+			if ( cache.size() >= maxStates ) {
+				flush();
+			}
+			to = intern(members);
+		}
+		from.next[symbolClass] = to;
+		return to;
+	}
+
+	/**
+	 * Returns the cached state for the given set, creating it if necessary.
+	 *
+	 * @param members
+	 * @return
+	 */
+	private final DState intern( int[] members ) {
+		if ( members.length == 0 ) {
+			return dead;
+		}
+		boolean accepting = false;
+		for ( int member : members ) {
+			accepting |= nfa.accepting[member];
+		}
+		DState state = new DState(members, accepting, nfa.classCount);
+		DState cached = cache.get(state);
+		if ( cached != null ) {
+			return cached;
+		}
+		cache.put(state, state);
+		return state;
+	}
+
+	/**
+	 * Drop every cached state.
+	 */
+	private final void flush() {
+		flushes++;
+		cache.clear();
+		start = null;
+	}
+
+	/**
+	 * Returns true if the last flush came too soon after the one before it.
+	 * This resets the count of characters read since the last flush.
+	 *
+	 * @return
+	 */
+	private final boolean isThrashing() {
+		boolean thrashing = flushes > 1 && charsSinceFlush < (long)MIN_CHARS_PER_STATE*maxStates;
+		charsSinceFlush = 0;
+		return thrashing;
+	}
+
+	/**
+	 * Returns the cached initial state.
+	 *
+	 * @return
+	 */
+	private final DState start() {
+		if ( start == null ) {
+			start = intern( nfa.closures[nfa.initial] );
+		}
+		return start;
+	}
+
+	/**
+	 * A matcher that walks the cached states, and falls back to simulation
+	 * when the cache is thrashing.
+	 */
+	private final class LazyMatcher extends AbstractMatcher {
+
+		private DState		state = start();
+		private NFAMatcher	simulation;
+		private boolean		simulating;
+
+		@Override
+		public final Matcher feed( char[] buffer, int offset, int length ) {
+			checkNotNull(buffer, "Provide a buffer.");
+			checkPositionIndexes(offset, offset+length, buffer.length);
+			if ( simulating ) {
+				return simulation.feed(buffer, offset, length);
+			}
+			int counted = offset, misses = 0, i = offset, end = offset+length;
+			for ( ; i < end && state != dead; i++ ) {
+				int symbolClass = nfa.alphabet.classOf(buffer[i]);
+				DState next = state.next[symbolClass];
+				if ( next == null ) {
+					misses++;
+					charsSinceFlush += i-counted;
+					counted = i;
+					int flushesBefore = flushes;
+					next = transition(state, symbolClass);
+					if ( flushes != flushesBefore && fallBack(next) ) {
+						lookedUp(i+1-offset, misses);
+						return simulation.feed(buffer, i+1, end-i-1);
+					}
+				}
+				state = next;
+			}
+			charsSinceFlush += offset+length-counted;
+			lookedUp(i-offset, misses);
+			return this;
+		}
+
+		@Override
+		public final Matcher feed( CharSequence input ) {
+			checkNotNull(input, "Provide some input.");
+			if ( simulating ) {
+				return simulation.feed(input);
+			}
+			int counted = 0, misses = 0, i = 0, length = input.length();
+			for ( ; i < length && state != dead; i++ ) {
+				int symbolClass = nfa.alphabet.classOf(input.charAt(i));
+				DState next = state.next[symbolClass];
+				if ( next == null ) {
+					misses++;
+					charsSinceFlush += i-counted;
+					counted = i;
+					int flushesBefore = flushes;
+					next = transition(state, symbolClass);
+					if ( flushes != flushesBefore && fallBack(next) ) {
+						lookedUp(i+1, misses);
+						return simulation.feed(input.subSequence(i+1, length));
+					}
+				}
+				state = next;
+			}
+			charsSinceFlush += length-counted;
+			lookedUp(i, misses);
+			return this;
+		}
+
+		/**
+		 * Tell the listener, if any, about the lookups made for a piece of input.
+		 *
+		 * @param read the number of characters read from the cache
+		 * @param misses the number of them that were not cached
+		 */
+		private final void lookedUp( int read, int misses ) {
+			if ( listener != null ) {
+				listener.cacheLookups(read-misses, misses);
+			}
+		}
+
+		/**
+		 * Returns true if the cache, which was just flushed, is thrashing, in
+		 * which case simulation continues from the given state.
+		 *
+		 * @param next
+		 * @return
+		 */
+		private final boolean fallBack( DState next ) {
+			if ( !isThrashing() ) {
+				return false;
+			}
+			if ( simulation == null ) {
+				simulation = new NFAMatcher(nfa);
+			}
+			simulation.setListener(listener);
+			simulation.reset(next.members);
+			simulating = true;
+			return true;
+		}
+
+		@Override
+		public final boolean isAccepting() {
+			return simulating ? simulation.isAccepting() : state.accepting;
+		}
+
+		@Override
+		public final boolean isDead() {
+			return simulating ? simulation.isDead() : state == dead;
+		}
+
+		@Override
+		public final void reset() {
+			state = start();
+			simulating = false;
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A compiled automaton that is read directly from a buffer in a compact
+ * binary format, typically a memory-mapped file.
+ * <p>
+ * The format is a sequence of big-endian <code>int</code>s:
+ * <pre>
+ *     magic, version, classCount, stateCount, initial, rangeCount,
+ *     rangeCount range starts, rangeCount range classes,
+ *     stateCount * classCount transitions,
+ *     (stateCount + 31) / 32 words of accepting bits
+ * </pre>
+ * which is the alphabet and the transition array of a {@link CompiledDFA}
+ * as they are.  Loading maps the file and checks the header and the
+ * alphabet; no objects are created per state, so large automata load in
+ * time independent of their number of states, and processes that map the
+ * same file share one copy of it in the page cache.  Transitions are not
+ * checked when loading, since that would read every state.
+ * <p>
+ * Instances only read their buffer with absolute gets, and may be shared
+ * between threads.
+ *
+ * @author jbrukh
+ *
+ */
+public final class MappedDFA implements Automaton {
+
+	// FIELDS //
+
+	/** The first word of the format, "JFAD". */
+	public final static int MAGIC = 0x4A464144;
+
+	/** The version of the format. */
+	public final static int VERSION = 1;
+
+	private final static int HEADER = 6;
+
+	private final IntBuffer		buffer;
+	private final int			classCount;
+	private final int			stateCount;
+	private final int			initial;
+	private final int			rangeCount;
+	private final int			transitions;
+	private final int			accepting;
+	private final int[]			direct;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param buffer
+	 */
+	private MappedDFA( IntBuffer buffer ) {
+		checkArgument(buffer.limit() >= HEADER && buffer.get(0) == MAGIC, "Not a compiled automaton.");
+		checkArgument(buffer.get(1) == VERSION, "Unsupported version %s.", buffer.get(1));
+		this.buffer 	= buffer;
+		this.classCount = buffer.get(2);
+		this.stateCount = buffer.get(3);
+		this.initial 	= buffer.get(4);
+		this.rangeCount = buffer.get(5);
+		checkArgument(classCount > 0 && stateCount > 0, "Corrupt header.");
+		checkArgument(0 < rangeCount && rangeCount <= Character.MAX_VALUE+1, "Corrupt header.");
+		checkArgument(0 <= initial && initial < stateCount, "Corrupt header.");
+
+		// sizes are computed in longs, since a corrupt header can overflow ints
+		long transitions 	= HEADER + 2L*rangeCount;
+		long accepting 		= transitions + (long)stateCount*classCount;
+		checkArgument(buffer.limit() == accepting + (stateCount+31L)/32, "Truncated automaton.");
+		this.transitions 	= (int)transitions;
+		this.accepting 		= (int)accepting;
+
+		// the ranges start at 0 and increase, and their classes are in bounds
+		for ( int range = 0; range < rangeCount; range++ ) {
+			int start = buffer.get(HEADER + range), symbolClass = buffer.get(HEADER + rangeCount + range);
+			checkArgument(range == 0 ? start == 0 : buffer.get(HEADER + range-1) < start && start <= Character.MAX_VALUE,
+					"Corrupt alphabet.");
+			checkArgument(0 <= symbolClass && symbolClass < classCount, "Corrupt alphabet.");
+		}
+
+		this.direct = new int[256];
+		for ( int c = 0; c < direct.length; c++ ) {
+			direct[c] = buffer.get(HEADER + rangeCount + search((char)c));
+		}
+	}
+
+	/**
+	 * Map the given file.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public final static MappedDFA load( File file ) throws IOException {
+		checkNotNull(file, "Provide a file.");
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			return wrap( channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) );
+		} finally {
+			// the mapping stays valid after the channel is closed
+			input.close();
+		}
+	}
+
+	/**
+	 * Read an automaton from the remaining bytes of the given buffer, which
+	 * must not be modified afterwards.
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	public final static MappedDFA wrap( ByteBuffer bytes ) {
+		checkNotNull(bytes, "Provide a buffer.");
+		return new MappedDFA( bytes.slice().asIntBuffer() );
+	}
+
+	/**
+	 * Write the given automaton to a file.
+	 *
+	 * @param dfa
+	 * @param file
+	 * @throws IOException
+	 */
+	public final static void write( CompiledDFA dfa, File file ) throws IOException {
+		checkNotNull(file, "Provide a file.");
+		OutputStream output = new FileOutputStream(file);
+		try {
+			write(dfa, output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Write the given automaton to a stream, which is flushed but not closed.
+	 *
+	 * @param dfa
+	 * @param output
+	 * @throws IOException
+	 */
+	public final static void write( CompiledDFA dfa, OutputStream output ) throws IOException {
+		checkNotNull(dfa, "Provide an automaton.");
+		checkNotNull(output, "Provide a stream.");
+		Alphabet alphabet = dfa.getAlphabet();
+		int states = dfa.getStateCount();
+
+		DataOutputStream data = new DataOutputStream( new BufferedOutputStream(output) );
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(alphabet.getClassCount());
+		data.writeInt(states);
+		data.writeInt(dfa.getInitial());
+		data.writeInt(alphabet.getRangeCount());
+		for ( int range = 0; range < alphabet.getRangeCount(); range++ ) {
+			data.writeInt(alphabet.getRangeStart(range));
+		}
+		for ( int range = 0; range < alphabet.getRangeCount(); range++ ) {
+			data.writeInt(alphabet.getRangeClass(range));
+		}
+		for ( int to : dfa.transitions() ) {
+			data.writeInt(to);
+		}
+		for ( int word = 0; word < (states+31)/32; word++ ) {
+			int bits = 0;
+			for ( int bit = 0; bit < 32 && 32*word+bit < states; bit++ ) {
+				if ( dfa.isAccepting(32*word+bit) ) {
+					bits |= 1 << bit;
+				}
+			}
+			data.writeInt(bits);
+		}
+		data.flush();
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		return compute((CharSequence)input);
+	}
+
+	/**
+	 * Runs the automaton on the given input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final boolean compute( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		int state = initial;
+		for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+			state = buffer.get(transitions + state*classCount + classOf(input.charAt(i)));
+		}
+		return isAccepting(state);
+	}
+
+	/**
+	 * Returns the state reached from the given state on the given symbol.
+	 *
+	 * @param state
+	 * @param symbol
+	 * @return
+	 */
+	public final int step( int state, char symbol ) {
+		checkElementIndex(state, stateCount);
+		return buffer.get(transitions + state*classCount + classOf(symbol));
+	}
+
+	/**
+	 * Returns true if and only if the given state is accepting.
+	 *
+	 * @param state
+	 * @return
+	 */
+	public final boolean isAccepting( int state ) {
+		return (buffer.get(accepting + (state >>> 5)) & (1 << (state & 31))) != 0;
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return
+	 */
+	public final int getInitial() {
+		return initial;
+	}
+
+	/**
+	 * Returns the number of states, including the dead state.
+	 *
+	 * @return
+	 */
+	public final int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns a copy of this automaton on the heap.
+	 *
+	 * @return
+	 */
+	public final CompiledDFA toCompiledDFA() {
+		char[] starts = new char[rangeCount];
+		int[] classes = new int[rangeCount];
+		for ( int range = 0; range < rangeCount; range++ ) {
+			starts[range] 	= (char)buffer.get(HEADER + range);
+			classes[range] 	= buffer.get(HEADER + rangeCount + range);
+		}
+		int[] copy = new int[stateCount*classCount];
+		for ( int i = 0; i < copy.length; i++ ) {
+			copy[i] = buffer.get(transitions + i);
+		}
+		boolean[] accepts = new boolean[stateCount];
+		for ( int state = 0; state < stateCount; state++ ) {
+			accepts[state] = isAccepting(state);
+		}
+		return new CompiledDFA( Alphabet.of(starts, classes, classCount), copy, accepts, initial );
+	}
+
+	/**
+	 * Returns the class of the given character.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	private final int classOf( char symbol ) {
+		return symbol < direct.length ? direct[symbol] : buffer.get(HEADER + rangeCount + search(symbol));
+	}
+
+	/**
+	 * Returns the index of the range that contains the given character.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	private final int search( char symbol ) {
+		int low = 0, high = rangeCount-1;
+		while ( low < high ) {
+			int middle = (low+high+1) >>> 1;
+			if ( buffer.get(HEADER + middle) <= symbol ) {
+				low = middle;
+			} else {
+				high = middle-1;
+			}
+		}
+		return low;
+	}
+
+}
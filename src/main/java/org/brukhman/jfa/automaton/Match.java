@@ -0,0 +1,68 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * The position of a match in an input: the characters from
+ * <code>start</code> to <code>end-1</code>.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Match {
+
+	// FIELDS //
+
+	private final int start;
+	private final int end;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param start
+	 * @param end
+	 */
+	public Match( int start, int end ) {
+		checkArgument(0 <= start && start <= end, "Invalid match bounds.");
+		this.start 	= start;
+		this.end 	= end;
+	}
+
+	/**
+	 * Returns the index of the first character of the match.
+	 *
+	 * @return
+	 */
+	public final int getStart() {
+		return start;
+	}
+
+	/**
+	 * Returns the index after the last character of the match.
+	 *
+	 * @return
+	 */
+	public final int getEnd() {
+		return end;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31*start + end;
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		if ( !(obj instanceof Match) ) {
+			return false;
+		}
+		Match other = (Match)obj;
+		return start == other.start && end == other.end;
+	}
+
+	@Override
+	public String toString() {
+		return "Match-[" + start + "," + end + ")";
+	}
+
+}
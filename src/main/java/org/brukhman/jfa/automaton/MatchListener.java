@@ -0,0 +1,47 @@
+package org.brukhman.jfa.automaton;
+
+/**
+ * Receives measurements from an automaton while it matches.
+ * <p>
+ * Listeners are attached with <code>setListener</code> on the automata that
+ * support them.  An automaton without a listener checks for one and does
+ * nothing else, so instrumentation costs nothing until it is turned on.
+ * Listeners are called on the matching thread, once per computation and,
+ * for simulating engines, once per character, so they should be cheap;
+ * see {@link MatchStatistics}.  A listener shared between automata used
+ * from several threads must be thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public interface MatchListener {
+
+	/**
+	 * Called after each computation.
+	 *
+	 * @param characters the length of the input
+	 * @param nanos the time the computation took
+	 * @param accepted the result
+	 */
+	public abstract void computed( int characters, long nanos, boolean accepted );
+
+	/**
+	 * Called after each character read by an engine that simulates a
+	 * nondeterministic table.
+	 *
+	 * @param activeStates the number of states the machine is in
+	 * @param expansions the number of states that were reached by following
+	 * 		transitions and epsilon closures, duplicates included, or <code>0</code>
+	 * 		for engines that do not reach states one at a time
+	 */
+	public abstract void stepped( int activeStates, int expansions );
+
+	/**
+	 * Called by engines that cache transitions, after each piece of input.
+	 *
+	 * @param hits the number of characters whose transition was cached
+	 * @param misses the number of characters whose transition had to be computed
+	 */
+	public abstract void cacheLookups( int hits, int misses );
+
+}
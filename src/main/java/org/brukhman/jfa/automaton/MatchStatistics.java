@@ -0,0 +1,354 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link MatchListener} that counts what it is told.
+ * <p>
+ * Every thread counts into counters of its own, without synchronization;
+ * the getters add up the counters of all threads.  Counts read while other
+ * threads are matching may therefore be slightly behind.  The counters of
+ * threads that have finished are added to a shared total and dropped, so
+ * threads that come and go do not make an instance grow.  Active set sizes
+ * are kept as a histogram with power-of-two buckets: bucket <code>0</code>
+ * counts empty sets and bucket <code>i</code> counts sizes from
+ * <code>2<sup>i-1</sup></code> to <code>2<sup>i</sup>-1</code>.
+ * <p>
+ * Instances are thread-safe, and one instance may be attached to any number
+ * of automata, e.g. one per rule, to find out where the time goes.
+ *
+ * @author jbrukh
+ *
+ */
+public final class MatchStatistics implements MatchListener {
+
+	// FIELDS //
+
+	/** The number of buckets of the active set histogram. */
+	public final static int BUCKETS = 32;
+
+	/** The fewest counters kept before dropping those of finished threads. */
+	private final static int MIN_PRUNE_SIZE = 16;
+
+	private final List<Counters>			all;
+	private final Counters					finished;
+	private final ThreadLocal<Counters>		local;
+	private int								pruneSize = MIN_PRUNE_SIZE;
+
+	/**
+	 * The counters of one thread.
+	 */
+	private final static class Counters {
+
+		final Thread	owner;
+		long		computations;
+		long		accepted;
+		long		characters;
+		long		nanos;
+		long		steps;
+		long		expansions;
+		int			maxActiveStates;
+		long		cacheHits;
+		long		cacheMisses;
+		final long[]	histogram = new long[BUCKETS];
+
+		/**
+		 * Create new counters for the given thread, or for none.
+		 *
+		 * @param owner
+		 */
+		Counters( Thread owner ) {
+			this.owner = owner;
+		}
+
+		/**
+		 * Add the given counters to these.
+		 *
+		 * @param other
+		 */
+		final void add( Counters other ) {
+			computations 	+= other.computations;
+			accepted 		+= other.accepted;
+			characters 		+= other.characters;
+			nanos 			+= other.nanos;
+			steps 			+= other.steps;
+			expansions 		+= other.expansions;
+			maxActiveStates = Math.max(maxActiveStates, other.maxActiveStates);
+			cacheHits 		+= other.cacheHits;
+			cacheMisses 	+= other.cacheMisses;
+			for ( int i = 0; i < BUCKETS; i++ ) {
+				histogram[i] += other.histogram[i];
+			}
+		}
+
+		/**
+		 * Set all counts to zero.
+		 */
+		final void clear() {
+			computations 	= 0;
+			accepted 		= 0;
+			characters 		= 0;
+			nanos 			= 0;
+			steps 			= 0;
+			expansions 		= 0;
+			maxActiveStates = 0;
+			cacheHits 		= 0;
+			cacheMisses 	= 0;
+			for ( int i = 0; i < BUCKETS; i++ ) {
+				histogram[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Create a new instance.
+	 */
+	private MatchStatistics() {
+		this.all 		= Lists.newArrayList();
+		this.finished 	= new Counters(null);
+		this.local 		= new ThreadLocal<Counters>() {
+			@Override
+			protected Counters initialValue() {
+				return register( new Counters(Thread.currentThread()) );
+			}
+		};
+	}
+
+	/**
+	 * Create a new instance with all counts at zero.
+	 *
+	 * @return
+	 */
+	public final static MatchStatistics create() {
+		return new MatchStatistics();
+	}
+
+	@Override
+	public final void computed( int characters, long nanos, boolean accepted ) {
+		Counters counters = local.get();
+		counters.computations++;
+		counters.characters += characters;
+		counters.nanos += nanos;
+		if ( accepted ) {
+			counters.accepted++;
+		}
+	}
+
+	@Override
+	public final void stepped( int activeStates, int expansions ) {
+		Counters counters = local.get();
+		counters.steps++;
+		counters.expansions += expansions;
+		counters.histogram[bucket(activeStates)]++;
+		if ( activeStates > counters.maxActiveStates ) {
+			counters.maxActiveStates = activeStates;
+		}
+	}
+
+	@Override
+	public final void cacheLookups( int hits, int misses ) {
+		Counters counters = local.get();
+		counters.cacheHits += hits;
+		counters.cacheMisses += misses;
+	}
+
+	/**
+	 * Returns the histogram bucket of the given active set size.
+	 *
+	 * @param activeStates
+	 * @return
+	 */
+	public final static int bucket( int activeStates ) {
+		return Integer.SIZE - Integer.numberOfLeadingZeros(activeStates);
+	}
+
+	/**
+	 * Returns the number of computations.
+	 *
+	 * @return
+	 */
+	public final long getComputations() {
+		return total().computations;
+	}
+
+	/**
+	 * Returns the number of computations that accepted their input.
+	 *
+	 * @return
+	 */
+	public final long getAccepted() {
+		return total().accepted;
+	}
+
+	/**
+	 * Returns the number of characters computed on.
+	 *
+	 * @return
+	 */
+	public final long getCharacters() {
+		return total().characters;
+	}
+
+	/**
+	 * Returns the total time spent computing, in nanoseconds.
+	 *
+	 * @return
+	 */
+	public final long getNanos() {
+		return total().nanos;
+	}
+
+	/**
+	 * Returns the number of characters computed on per second of computation,
+	 * or <code>0</code> if no time was measured.
+	 *
+	 * @return
+	 */
+	public final double getCharactersPerSecond() {
+		long nanos = getNanos();
+		return nanos == 0 ? 0 : getCharacters() * 1e9 / nanos;
+	}
+
+	/**
+	 * Returns the number of characters read by simulating engines.
+	 *
+	 * @return
+	 */
+	public final long getSteps() {
+		return total().steps;
+	}
+
+	/**
+	 * Returns the number of states reached through transitions and epsilon
+	 * closures by simulating engines, duplicates included.
+	 *
+	 * @return
+	 */
+	public final long getExpansions() {
+		return total().expansions;
+	}
+
+	/**
+	 * Returns the largest active set seen.
+	 *
+	 * @return
+	 */
+	public final int getMaxActiveStates() {
+		return total().maxActiveStates;
+	}
+
+	/**
+	 * Returns a copy of the histogram of active set sizes, with
+	 * {@link #BUCKETS} buckets as described above.
+	 *
+	 * @return
+	 */
+	public final long[] getActiveStateHistogram() {
+		return total().histogram;
+	}
+
+	/**
+	 * Returns the number of characters whose transition was cached.
+	 *
+	 * @return
+	 */
+	public final long getCacheHits() {
+		return total().cacheHits;
+	}
+
+	/**
+	 * Returns the number of characters whose transition had to be computed.
+	 *
+	 * @return
+	 */
+	public final long getCacheMisses() {
+		return total().cacheMisses;
+	}
+
+	/**
+	 * Set all counts to zero.  Counts from computations in progress on
+	 * other threads may be lost.
+	 */
+	public final synchronized void reset() {
+		finished.clear();
+		for ( Counters counters : all ) {
+			counters.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of threads whose counters are kept apart.
+	 *
+	 * @return
+	 */
+	final synchronized int getCountersSize() {
+		return all.size();
+	}
+
+	/**
+	 * Add the given counters of a new thread.  Whenever the number of
+	 * counters doubles, those of finished threads are added to the total
+	 * and dropped, which keeps registration amortized constant time.
+	 *
+	 * @param counters
+	 * @return the counters
+	 */
+	private final synchronized Counters register( Counters counters ) {
+		if ( all.size() >= pruneSize ) {
+			prune();
+			pruneSize = Math.max(MIN_PRUNE_SIZE, 2*all.size());
+		}
+		all.add(counters);
+		return counters;
+	}
+
+	/**
+	 * Add the counters of finished threads to the total and drop them.
+	 */
+	private final void prune() {
+		int size = 0;
+		for ( int i = 0; i < all.size(); i++ ) {
+			Counters counters = all.get(i);
+			// a thread's counts are all visible once it is seen to have finished
+			if ( counters.owner.isAlive() ) {
+				all.set(size++, counters);
+			} else {
+				finished.add(counters);
+			}
+		}
+		all.subList(size, all.size()).clear();
+	}
+
+	/**
+	 * Returns the sum of the counters of all threads.
+	 *
+	 * @return
+	 */
+	private final synchronized Counters total() {
+		Counters total = new Counters(null);
+		total.add(finished);
+		for ( Counters counters : all ) {
+			total.add(counters);
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+				.add("computations", getComputations())
+				.add("accepted", getAccepted())
+				.add("characters", getCharacters())
+				.add("charactersPerSecond", getCharactersPerSecond())
+				.add("steps", getSteps())
+				.add("expansions", getExpansions())
+				.add("maxActiveStates", getMaxActiveStates())
+				.add("cacheHits", getCacheHits())
+				.add("cacheMisses", getCacheMisses())
+				.toString();
+	}
+
+}
@@ -0,0 +1,78 @@
+package org.brukhman.jfa.automaton;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Runs an automaton on input that arrives in pieces.
+ * <p>
+ * A matcher keeps the state of the automaton between calls to
+ * <code>feed</code>, so feeding the pieces of an input one after the other
+ * is the same as computing on the whole input, without ever holding it in
+ * memory.  Matchers are not thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public interface Matcher {
+
+	/**
+	 * Read the given characters.
+	 *
+	 * @param buffer
+	 * @param offset
+	 * @param length
+	 * @return this matcher
+	 */
+	public abstract Matcher feed( char[] buffer, int offset, int length );
+
+	/**
+	 * Read the remaining characters of the given buffer, which is left
+	 * with no remaining characters.
+	 *
+	 * @param buffer
+	 * @return this matcher
+	 */
+	public abstract Matcher feed( CharBuffer buffer );
+
+	/**
+	 * Read the given characters.
+	 *
+	 * @param input
+	 * @return this matcher
+	 */
+	public abstract Matcher feed( CharSequence input );
+
+	/**
+	 * Read the given reader to the end, or until the automaton can no
+	 * longer accept.  The reader is not closed.
+	 *
+	 * @param reader
+	 * @return this matcher
+	 * @throws IOException
+	 */
+	public abstract Matcher feed( Reader reader ) throws IOException;
+
+	/**
+	 * Returns true if and only if the automaton accepts the input read
+	 * since the last reset.
+	 *
+	 * @return
+	 */
+	public abstract boolean isAccepting();
+
+	/**
+	 * Returns true if and only if the automaton rejects every continuation
+	 * of the input read since the last reset, so reading can stop.
+	 *
+	 * @return
+	 */
+	public abstract boolean isDead();
+
+	/**
+	 * Return to the initial state, as if no input had been read.
+	 */
+	public abstract void reset();
+
+}
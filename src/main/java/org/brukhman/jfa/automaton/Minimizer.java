@@ -0,0 +1,378 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Minimizes compiled deterministic automata with Hopcroft's partition
+ * refinement algorithm, in <code>O(k n log n)</code> time for <code>n</code>
+ * states and <code>k</code> symbol classes.
+ * <p>
+ * Unreachable states are dropped first.  The remaining states start out
+ * partitioned into accepting and rejecting blocks, or by finer labels such
+ * as those of {@link MultiPatternDFA}, and blocks are split by
+ * the predecessors of (block, class) splitters until no splitter separates any
+ * block.  Blocks are kept in a single array of states so that splitting only
+ * moves states within their block, and only the smaller half of a split block
+ * is relabeled, which is what gives the <code>log n</code> bound.  All
+ * bookkeeping lives in flat <code>int</code> arrays, so automata with
+ * hundreds of thousands of states minimize without per-state objects.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Minimizer {
+
+	/**
+	 * Use the static methods.
+	 */
+	private Minimizer() {
+	}
+
+	/**
+	 * Returns the minimal automaton equivalent to the given one.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	public final static CompiledDFA minimize( CompiledDFA dfa ) {
+		checkNotNull(dfa, "Provide an automaton.");
+		int[] labels = new int[dfa.getStateCount()];
+		for ( int state = 0; state < labels.length; state++ ) {
+			labels[state] = dfa.isAccepting(state) ? 1 : 0;
+		}
+		return minimize(dfa, labels, null);
+	}
+
+	/**
+	 * Returns the minimal automaton equivalent to the given one, where states
+	 * with different labels are never merged.  If <code>origins</code> is not
+	 * <code>null</code>, it must have room for every state of the given
+	 * automaton, and receives for each state of the result a state of the
+	 * given automaton that it was merged from.
+	 *
+	 * @param dfa
+	 * @param stateLabels a non-negative label for every state, which is
+	 * 		non-zero exactly for accepting states
+	 * @param origins
+	 * @return
+	 */
+	final static CompiledDFA minimize( CompiledDFA dfa, int[] stateLabels, int[] origins ) {
+		checkArgument(stateLabels.length == dfa.getStateCount(), "Provide a label for every state.");
+		int k = dfa.getAlphabet().getClassCount();
+		int[] transitions = dfa.transitions();
+
+		// keep the dead state and everything reachable
+		int[] states = reachable(dfa);
+		int n = states.length;
+		int[] local = new int[dfa.getStateCount()];
+		Arrays.fill(local, -1);
+		for ( int i = 0; i < n; i++ ) {
+			local[states[i]] = i;
+		}
+
+		// predecessors of every (state, class), in compressed rows
+		int[] offsets = new int[n*k+1];
+		for ( int i = 0; i < n; i++ ) {
+			for ( int c = 0; c < k; c++ ) {
+				offsets[ local[transitions[states[i]*k+c]]*k + c + 1 ]++;
+			}
+		}
+		for ( int i = 0; i < n*k; i++ ) {
+			offsets[i+1] += offsets[i];
+		}
+		int[] predecessors = new int[n*k];
+		int[] fill = Arrays.copyOf(offsets, n*k);
+		for ( int i = 0; i < n; i++ ) {
+			for ( int c = 0; c < k; c++ ) {
+				predecessors[ fill[local[transitions[states[i]*k+c]]*k + c]++ ] = i;
+			}
+		}
+
+		Partition partition = new Partition(n);
+		int[] labels = new int[n];
+		for ( int i = 0; i < n; i++ ) {
+			labels[i] = stateLabels[states[i]];
+		}
+		partition.split(labels);
+
+		// worklist of (block, class) splitters
+		boolean[] pending = new boolean[n*k];
+		int[] worklist = new int[n*k];
+		int size = 0;
+		for ( int b = 0; b < partition.blocks; b++ ) {
+			for ( int c = 0; c < k; c++ ) {
+				pending[b*k+c] = true;
+				worklist[size++] = b*k+c;
+			}
+		}
+
+		int[] splitter = new int[n];
+		int[] touched = new int[n];
+		while ( size > 0 ) {
+			int next = worklist[--size];
+			pending[next] = false;
+			int block = next/k, c = next%k;
+
+			// snapshot the splitter, since marking may reorder it
+			int length = partition.copy(block, splitter);
+			int touchedCount = 0;
+			for ( int i = 0; i < length; i++ ) {
+				int target = splitter[i]*k + c;
+				for ( int j = offsets[target]; j < offsets[target+1]; j++ ) {
+					int b = partition.mark(predecessors[j]);
+					if ( b >= 0 ) {
+						touched[touchedCount++] = b;
+					}
+				}
+			}
+
+			for ( int i = 0; i < touchedCount; i++ ) {
+				int b = touched[i];
+				int created = partition.splitMarked(b);
+				if ( created < 0 ) {
+					continue;
+				}
+				for ( int d = 0; d < k; d++ ) {
+					if ( pending[b*k+d] || partition.size(created) <= partition.size(b) ) {
+						pending[created*k+d] = true;
+						worklist[size++] = created*k+d;
+					} else {
+						pending[b*k+d] = true;
+						worklist[size++] = b*k+d;
+					}
+				}
+			}
+		}
+
+		// renumber the blocks so that the dead state stays in state 0
+		int[] renumbered = new int[partition.blocks];
+		Arrays.fill(renumbered, -1);
+		renumbered[ partition.blockOf[local[CompiledDFA.DEAD]] ] = CompiledDFA.DEAD;
+		int count = 1;
+		for ( int b = 0; b < partition.blocks; b++ ) {
+			if ( renumbered[b] == -1 ) {
+				renumbered[b] = count++;
+			}
+		}
+
+		int[] result = new int[count*k];
+		boolean[] accepting = new boolean[count];
+		for ( int b = 0; b < partition.blocks; b++ ) {
+			int representative = states[ partition.elements[partition.first[b]] ];
+			int to = renumbered[b];
+			accepting[to] = dfa.isAccepting(representative);
+			if ( origins != null ) {
+				origins[to] = representative;
+			}
+			for ( int c = 0; c < k; c++ ) {
+				result[to*k+c] = renumbered[ partition.blockOf[local[transitions[representative*k+c]]] ];
+			}
+		}
+		int initial = renumbered[ partition.blockOf[local[dfa.getInitial()]] ];
+		return mergeClasses( new CompiledDFA(dfa.getAlphabet(), result, accepting, initial) );
+	}
+
+	/**
+	 * Merge the symbol classes whose columns became identical when states
+	 * were merged.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	private final static CompiledDFA mergeClasses( CompiledDFA dfa ) {
+		int k = dfa.getAlphabet().getClassCount();
+		int n = dfa.getStateCount();
+		int[] transitions = dfa.transitions();
+
+		Map<IntArray,Integer> columns = Maps.newHashMap();
+		int[] mapping = new int[k];
+		int[] kept = new int[k];
+		for ( int c = 0; c < k; c++ ) {
+			int[] column = new int[n];
+			for ( int state = 0; state < n; state++ ) {
+				column[state] = transitions[state*k+c];
+			}
+			IntArray key = new IntArray(column);
+			Integer merged = columns.get(key);
+			if ( merged == null ) {
+				merged = columns.size();
+				columns.put(key, merged);
+				kept[merged] = c;
+			}
+			mapping[c] = merged;
+		}
+		int classCount = columns.size();
+		if ( classCount == k ) {
+			return dfa;
+		}
+
+		// the dead column comes first, so class 0 stays the unknown class
+		int[] result = new int[n*classCount];
+		for ( int state = 0; state < n; state++ ) {
+			for ( int c = 0; c < classCount; c++ ) {
+				result[state*classCount+c] = transitions[state*k+kept[c]];
+			}
+		}
+		boolean[] accepting = new boolean[n];
+		for ( int state = 0; state < n; state++ ) {
+			accepting[state] = dfa.isAccepting(state);
+		}
+		return new CompiledDFA(dfa.getAlphabet().merge(mapping, classCount), result, accepting, dfa.getInitial());
+	}
+
+	/**
+	 * Returns the dead state and the states reachable from the initial state,
+	 * in the order they are found.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	private final static int[] reachable( CompiledDFA dfa ) {
+		int k = dfa.getAlphabet().getClassCount();
+		int[] transitions = dfa.transitions();
+		boolean[] seen = new boolean[dfa.getStateCount()];
+		int[] queue = new int[dfa.getStateCount()];
+		int head = 0, tail = 0;
+		seen[CompiledDFA.DEAD] = true;
+		queue[tail++] = CompiledDFA.DEAD;
+		if ( !seen[dfa.getInitial()] ) {
+			seen[dfa.getInitial()] = true;
+			queue[tail++] = dfa.getInitial();
+		}
+		while ( head < tail ) {
+			int state = queue[head++];
+			for ( int c = 0; c < k; c++ ) {
+				int to = transitions[state*k+c];
+				if ( !seen[to] ) {
+					seen[to] = true;
+					queue[tail++] = to;
+				}
+			}
+		}
+		return Arrays.copyOf(queue, tail);
+	}
+
+	/**
+	 * A refinable partition of <code>0..n-1</code>.  The members of every block
+	 * are contiguous in {@link #elements}; marked members are moved to the front
+	 * of their block.
+	 */
+	private final static class Partition {
+
+		final int[] elements;
+		final int[] location;
+		final int[] blockOf;
+		final int[] first;
+		final int[] end;
+		final int[] marked;
+		int blocks;
+
+		Partition( int n ) {
+			elements 	= new int[n];
+			location 	= new int[n];
+			blockOf 	= new int[n];
+			first 		= new int[n];
+			end 		= new int[n];
+			marked 		= new int[n];
+			for ( int i = 0; i < n; i++ ) {
+				elements[i] = location[i] = i;
+			}
+			blocks = 1;
+			first[0] = marked[0] = 0;
+			end[0] = n;
+		}
+
+		/**
+		 * Split the single initial block by the given non-negative labels.
+		 */
+		final void split( int[] labels ) {
+			int n = elements.length;
+			long[] order = new long[n];
+			for ( int i = 0; i < n; i++ ) {
+				order[i] = ((long)labels[i] << 32) | i;
+			}
+			Arrays.sort(order);
+			blocks = 0;
+			for ( int i = 0; i < n; i++ ) {
+				int state = (int)order[i];
+				if ( i == 0 || (order[i-1] >>> 32) != (order[i] >>> 32) ) {
+					if ( blocks > 0 ) {
+						end[blocks-1] = i;
+					}
+					first[blocks] = marked[blocks] = i;
+					blocks++;
+				}
+				elements[i] = state;
+				location[state] = i;
+				blockOf[state] = blocks-1;
+			}
+			end[blocks-1] = n;
+		}
+
+		final int size( int block ) {
+			return end[block]-first[block];
+		}
+
+		/**
+		 * Copy the members of the given block into the buffer.
+		 */
+		final int copy( int block, int[] buffer ) {
+			int length = size(block);
+			System.arraycopy(elements, first[block], buffer, 0, length);
+			return length;
+		}
+
+		/**
+		 * Mark the given state, returning its block if it is the first
+		 * state marked in it, and <code>-1</code> otherwise.
+		 */
+		final int mark( int state ) {
+			int block = blockOf[state];
+			int position = location[state];
+			if ( position < marked[block] ) {
+				return -1;
+			}
+			int swap = elements[marked[block]];
+			elements[position] = swap;
+			location[swap] = position;
+			elements[marked[block]] = state;
+			location[state] = marked[block];
+			return marked[block]++ == first[block] ? block : -1;
+		}
+
+		/**
+		 * Split the marked states of the given block from the unmarked ones,
+		 * giving the smaller part a new block.  Returns the new block, or
+		 * <code>-1</code> if every state was marked.
+		 */
+		final int splitMarked( int block ) {
+			int middle = marked[block];
+			marked[block] = first[block];
+			if ( middle == end[block] ) {
+				return -1;
+			}
+			int created = blocks++;
+			if ( middle-first[block] <= end[block]-middle ) {
+				first[created] = first[block];
+				end[created] = middle;
+				first[block] = middle;
+			} else {
+				first[created] = middle;
+				end[created] = end[block];
+				end[block] = middle;
+			}
+			marked[created] = first[created];
+			marked[block] = first[block];
+			for ( int i = first[created]; i < end[created]; i++ ) {
+				blockOf[elements[i]] = created;
+			}
+			return created;
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+/**
+ * Matches many patterns at once with a single compiled automaton.
+ * <p>
+ * The patterns are numbered by their position in the list they are given in.
+ * They are joined into one nondeterministic table whose final states are
+ * labeled with the number of their pattern, and the subset construction
+ * labels each deterministic state with the set of patterns of its members.
+ * Minimization only merges states with the same set, so one pass over the
+ * input reports every pattern that accepts it.
+ * <p>
+ * Patterns are matched against whole inputs; to find patterns anywhere in the
+ * input, have them begin and end with <code>.*</code>.  Instances are
+ * immutable and thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public final class MultiPatternDFA implements Automaton {
+
+	// FIELDS //
+
+	private final CompiledDFA	dfa;
+	private final int[][]		patterns;
+	private final int			patternCount;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param dfa
+	 * @param patterns
+	 * @param patternCount
+	 */
+	private MultiPatternDFA( CompiledDFA dfa, int[][] patterns, int patternCount ) {
+		this.dfa 			= dfa;
+		this.patterns 		= patterns;
+		this.patternCount 	= patternCount;
+	}
+
+	/**
+	 * Compile the given patterns, constructing at most
+	 * {@link Determinizer#DEFAULT_MAX_STATES} states.
+	 *
+	 * @param patterns
+	 * @return
+	 */
+	public final static MultiPatternDFA compile( List<? extends NondeterministicTable> patterns ) {
+		return compile(patterns, Determinizer.DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Compile the given patterns.
+	 *
+	 * @param patterns
+	 * @param maxStates the largest number of states before minimization
+	 * @return
+	 * @throws StateExplosionException if there would be more than
+	 * 		<code>maxStates</code> states
+	 */
+	public final static MultiPatternDFA compile( List<? extends NondeterministicTable> patterns, int maxStates ) {
+		checkNotNull(patterns, "Provide some patterns.");
+		checkArgument(maxStates > 0, "The state limit must be positive.");
+
+		// join the patterns, remembering the pattern of every final state
+		NFA joined = new NFA();
+		State start = joined.newState();
+		joined.makeInitial(start);
+		List<Integer> patternOf = Lists.newArrayList();
+		patternOf.add(-1);
+		for ( int pattern = 0; pattern < patterns.size(); pattern++ ) {
+			IndexedNFA nfa = IndexedNFA.of( patterns.get(pattern) );
+			State[] states = new State[nfa.size()];
+			for ( int i = 0; i < states.length; i++ ) {
+				states[i] = joined.newState();
+				patternOf.add( nfa.accepting[i] ? pattern : -1 );
+				if ( nfa.accepting[i] ) {
+					joined.makeFinal(states[i]);
+				}
+			}
+			for ( int member : nfa.closures[nfa.initial] ) {
+				joined.addTransition(start, EPSILON, states[member]);
+			}
+			for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+				char[] ranges = nfa.alphabet.getRanges(symbolClass);
+				for ( int i = 0; i < states.length; i++ ) {
+					for ( int to : nfa.step(i, symbolClass) ) {
+						joined.addTransitions(states[i], ranges, states[to]);
+					}
+				}
+			}
+		}
+
+		IndexedNFA nfa = IndexedNFA.of(joined);
+		int n = nfa.size(), k = nfa.classCount;
+		int[] labelOf = new int[n];
+		for ( int i = 0; i < n; i++ ) {
+			labelOf[i] = patternOf.get( nfa.states[i].getName() );
+		}
+
+		// the subset construction, with state 0 as the empty set
+		Map<IntArray,Integer> index = Maps.newHashMap();
+		List<int[]> sets = Lists.newArrayList();
+		sets.add(IndexedNFA.EMPTY);
+		index.put(new IntArray(IndexedNFA.EMPTY), CompiledDFA.DEAD);
+		int[] transitions = new int[16*k];
+		Queue<Integer> pending = new LinkedList<Integer>();
+		int initial = intern(nfa.closures[nfa.initial], index, sets, pending, maxStates);
+
+		boolean[] mark = new boolean[n];
+		int[] buffer = new int[n];
+		while ( !pending.isEmpty() ) {
+			int from = pending.remove();
+			if ( transitions.length < sets.size()*k ) {
+				transitions = Arrays.copyOf(transitions, 2*sets.size()*k);
+			}
+			for ( int symbolClass = 1; symbolClass < k; symbolClass++ ) {
+				int size = 0;
+				for ( int member : sets.get(from) ) {
+					size = IndexedNFA.union(nfa.step(member, symbolClass), mark, buffer, size);
+				}
+				int to = intern( IndexedNFA.sorted(buffer, size, mark), index, sets, pending, maxStates );
+				if ( transitions.length < sets.size()*k ) {
+					transitions = Arrays.copyOf(transitions, 2*sets.size()*k);
+				}
+				transitions[from*k+symbolClass] = to;
+			}
+		}
+
+		// label every state by its set of patterns
+		Map<IntArray,Integer> labelIndex = Maps.newHashMap();
+		List<int[]> labelSets = Lists.newArrayList();
+		labelSets.add(IndexedNFA.EMPTY);
+		labelIndex.put(new IntArray(IndexedNFA.EMPTY), 0);
+		int[] labels = new int[sets.size()];
+		boolean[] accepting = new boolean[sets.size()];
+		for ( int state = 0; state < sets.size(); state++ ) {
+			List<Integer> matched = Lists.newArrayList();
+			for ( int member : sets.get(state) ) {
+				if ( labelOf[member] >= 0 ) {
+					matched.add(labelOf[member]);
+				}
+			}
+			int[] set = Ints.toArray(matched);
+			Arrays.sort(set);
+			IntArray key = new IntArray(set);
+			Integer label = labelIndex.get(key);
+			if ( label == null ) {
+				label = labelSets.size();
+				labelSets.add(set);
+				labelIndex.put(key, label);
+			}
+			labels[state] = label;
+			accepting[state] = set.length > 0;
+		}
+
+		CompiledDFA dfa = new CompiledDFA(nfa.alphabet,
+				Arrays.copyOf(transitions, sets.size()*k), accepting, initial);
+		int[] origins = new int[sets.size()];
+		CompiledDFA minimal = Minimizer.minimize(dfa, labels, origins);
+		int[][] result = new int[minimal.getStateCount()][];
+		for ( int state = 0; state < result.length; state++ ) {
+			result[state] = labelSets.get( labels[origins[state]] );
+		}
+		return new MultiPatternDFA(minimal, result, patterns.size());
+	}
+
+	/**
+	 * Returns the number of the given set of states, numbering it if it is new.
+	 */
+	private final static int intern( int[] set, Map<IntArray,Integer> index, List<int[]> sets,
+			Queue<Integer> pending, int maxStates ) {
+		IntArray key = new IntArray(set);
+		Integer state = index.get(key);
+		if ( state == null ) {
+			if ( sets.size() > maxStates ) {
+				throw new StateExplosionException(maxStates);
+			}
+			state = sets.size();
+			sets.add(set);
+			index.put(key, state);
+			pending.add(state);
+		}
+		return state;
+	}
+
+	/**
+	 * Returns true if and only if some pattern accepts the input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	@Override
+	public final boolean compute( String input ) {
+		return dfa.compute(input);
+	}
+
+	/**
+	 * Returns the set of the numbers of the patterns that accept the input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final BitSet matches( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		int state = dfa.getInitial();
+		for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+			state = dfa.step(state, input.charAt(i));
+		}
+		BitSet matched = new BitSet(patternCount);
+		for ( int pattern : patterns[state] ) {
+			matched.set(pattern);
+		}
+		return matched;
+	}
+
+	/**
+	 * Returns the sorted numbers of the patterns that accept in the given
+	 * state of the compiled automaton.
+	 *
+	 * @param state
+	 * @return
+	 */
+	public final int[] getPatterns( int state ) {
+		checkElementIndex(state, patterns.length);
+		return patterns[state].clone();
+	}
+
+	/**
+	 * Returns the number of patterns.
+	 *
+	 * @return
+	 */
+	public final int getPatternCount() {
+		return patternCount;
+	}
+
+	/**
+	 * Returns the compiled automaton, which accepts wherever some pattern does.
+	 *
+	 * @return
+	 */
+	public final CompiledDFA getAutomaton() {
+		return dfa;
+	}
+
+}
@@ -1,10 +1,12 @@
 package org.brukhman.jfa.automaton;
 
 import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
 
 import java.util.Set;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
 /**
  * A Nondeterministic Finite Automaton.
@@ -14,12 +16,29 @@ import com.google.common.collect.Iterables;
  * <p>
  * An NFA consists of a set of states, one of which is an initial state and some or none of which
  * are final states.  Additionally, states may be transitioned given an input symbol.  
+ * <p>
+ * Machines with at most {@link BitParallelNFA#MAX_POSITIONS} positions are computed
+ * with a {@link BitParallelNFA}, which is rebuilt after the machine changes.
+ * <p>
+ * A {@link MatchListener} may be attached to measure computations and the
+ * size of the active set.
  * 
  * @author jbrukh
  *
  */
 public final class NFA extends NondeterministicTable implements ConstructibleAutomaton {
 
+	// FIELDS //
+
+	/** The bit-parallel engine for the current table, if it fits. */
+	private BitParallelNFA	bitParallel;
+	private boolean			bitParallelChecked;
+
+	/** Whether the machine has been validated since it last changed. */
+	private boolean			validated;
+
+	private MatchListener	listener;
+
 	/**
 	 * Create a new instance.
 	 * 
@@ -33,29 +52,168 @@ public final class NFA extends NondeterministicTable implements ConstructibleAut
 	public final boolean compute( String input ) {
 		checkNotNull(input, "Provide some input.");
 		validate();
+		if ( listener == null ) {
+			return run(input);
+		}
+		long start = System.nanoTime();
+		boolean accepted = run(input);
+		listener.computed(input.length(), System.nanoTime()-start, accepted);
+		return accepted;
+	}
+
+	/**
+	 * Compute on the given input with the fastest engine that fits.
+	 * 
+	 * @param input
+	 * @return
+	 */
+	private final boolean run( String input ) {
+		BitParallelNFA engine = bitParallel();
+		if ( engine != null ) {
+			return listener == null 
+					? engine.compute(input) 
+					: engine.matcher(listener).feed(input).isAccepting();
+		}
 
-		char[] inputArray = input.toCharArray();
 		NondeterministicTraverser traverser = traverser();
 		
 		Set<State> currentStates = traverser.epsilonClosureInitial();
 
-		for ( char inputChar : inputArray ) {
-			currentStates = traverser.transition(currentStates, inputChar);
+		for ( int i = 0, length = input.length(); i < length; i++ ) {
+			currentStates = step(traverser, currentStates, input.charAt(i));
 		}
+		// final states may be reached by epsilons after the last symbol
+		currentStates = traverser.transition(currentStates, EPSILON);
 		return Iterables.any( currentStates, State.isFinalPredicate );
 	}
 
+	/**
+	 * Transition the given states on the given symbol, telling the listener
+	 * how many states were reached.
+	 * 
+	 * @param traverser
+	 * @param from
+	 * @param symbol
+	 * @return
+	 */
+	private final Set<State> step( NondeterministicTraverser traverser, Set<State> from, char symbol ) {
+		if ( listener == null ) {
+			return traverser.transition(from, symbol);
+		}
+		Set<State> to = Sets.newHashSet();
+		int expansions = 0;
+		for ( State state : from ) {
+			Set<State> reached = traverser.transition(state, symbol);
+			expansions += reached.size();
+			to.addAll(reached);
+		}
+		listener.stepped(to.size(), expansions);
+		return to;
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.  The matcher runs on a
+	 * snapshot of this machine, and is not affected by later changes.
+	 * 
+	 * @return
+	 */
+	public final Matcher matcher() {
+		validate();
+		BitParallelNFA engine = bitParallel();
+		return engine != null ? engine.matcher(listener) : new NFAMatcher( IndexedNFA.of(this), listener );
+	}
 
 	/**
-	 * Make sure this machine is valid.
+	 * Set the listener that is told about computations and steps, including
+	 * those of matchers created afterwards.  Frozen snapshots are not measured.
+	 * 
+	 * @param listener the listener, or <code>null</code> to stop measuring
+	 */
+	public final void setListener( MatchListener listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns a validated snapshot of this machine, which is not affected by
+	 * later changes.  Its <code>compute</code> performs no checks and no copying,
+	 * and it may be shared between threads.
+	 * <p>
+	 * Machines that fit are frozen into a {@link BitParallelNFA}; larger ones
+	 * are simulated with one {@link NFAMatcher} per thread.
+	 * 
+	 * @return
+	 */
+	public final Automaton freeze() {
+		validate();
+		BitParallelNFA engine = bitParallel();
+		return engine != null ? engine : new FrozenNFA( IndexedNFA.of(this) );
+	}
+
+	@Override
+	protected void modified() {
+		bitParallelChecked = false;
+		bitParallel = null;
+		validated = false;
+	}
+
+	/**
+	 * Returns the bit-parallel engine for this machine, or <code>null</code>
+	 * if the machine is too large for one.
+	 * 
+	 * @return
+	 */
+	private final BitParallelNFA bitParallel() {
+		if ( !bitParallelChecked ) {
+			bitParallel = BitParallelNFA.create(this);
+			bitParallelChecked = true;
+		}
+		return bitParallel;
+	}
+
+	/**
+	 * Make sure this machine is valid.  The result is kept until the
+	 * machine changes.
 	 */
 	private final void validate() {
+		if ( validated ) {
+			return;
+		}
 		checkState( getInitial() != null, "There is no initial state in the machine.");
-		checkState( !getFinal().isEmpty(), "No final states -- this machine accepts no language.");
+		checkState( !finalStates.isEmpty(), "No final states -- this machine accepts no language.");
 		checkState(
 				states.containsAll(table.rowKeySet()),
 				"Looks like you forgot to add some transitions."
 		);
+		validated = true;
+	}
+
+	/**
+	 * A frozen machine that is too large to be bit-parallel.
+	 */
+	private final static class FrozenNFA implements Automaton {
+
+		private final ThreadLocal<NFAMatcher>	matchers;
+
+		/**
+		 * Create a new instance.
+		 * 
+		 * @param nfa
+		 */
+		FrozenNFA( final IndexedNFA nfa ) {
+			this.matchers = new ThreadLocal<NFAMatcher>() {
+				@Override
+				protected NFAMatcher initialValue() {
+					return new NFAMatcher(nfa);
+				}
+			};
+		}
+
+		@Override
+		public final boolean compute( String input ) {
+			NFAMatcher matcher = matchers.get();
+			matcher.reset();
+			return matcher.feed(input).isAccepting();
+		}
 	}
 
 
@@ -0,0 +1,123 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * A matcher that simulates an indexed nondeterministic table on two
+ * {@link SparseSet}s of active states, as described in {@link NFASimulator}.
+ *
+ * @author jbrukh
+ *
+ */
+final class NFAMatcher extends AbstractMatcher {
+
+	// FIELDS //
+
+	private final IndexedNFA	nfa;
+	private SparseSet			current;
+	private SparseSet			next;
+	private MatchListener		listener;
+
+	/**
+	 * Create a new instance in the initial state.
+	 *
+	 * @param nfa
+	 */
+	NFAMatcher( IndexedNFA nfa ) {
+		this(nfa, null);
+	}
+
+	/**
+	 * Create a new instance in the initial state.
+	 *
+	 * @param nfa
+	 * @param listener told about every step, or <code>null</code>
+	 */
+	NFAMatcher( IndexedNFA nfa, MatchListener listener ) {
+		this.nfa 		= nfa;
+		this.current 	= new SparseSet(nfa.size());
+		this.next 		= new SparseSet(nfa.size());
+		this.listener 	= listener;
+		reset();
+	}
+
+	@Override
+	public final Matcher feed( char[] buffer, int offset, int length ) {
+		checkNotNull(buffer, "Provide a buffer.");
+		checkPositionIndexes(offset, offset+length, buffer.length);
+		for ( int i = offset, end = offset+length; i < end && current.size() > 0; i++ ) {
+			step( nfa.alphabet.classOf(buffer[i]) );
+		}
+		return this;
+	}
+
+	@Override
+	public final Matcher feed( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		for ( int i = 0, length = input.length(); i < length && current.size() > 0; i++ ) {
+			step( nfa.alphabet.classOf(input.charAt(i)) );
+		}
+		return this;
+	}
+
+	/**
+	 * Advance the active states on the given symbol class.
+	 *
+	 * @param symbolClass
+	 */
+	private final void step( int symbolClass ) {
+		next.clear();
+		int expansions = 0;
+		for ( int j = 0, size = current.size(); j < size; j++ ) {
+			int[] to = nfa.step(current.get(j), symbolClass);
+			next.addAll(to);
+			expansions += to.length;
+		}
+		SparseSet swap = current;
+		current = next;
+		next = swap;
+		if ( listener != null ) {
+			listener.stepped(current.size(), expansions);
+		}
+	}
+
+	@Override
+	public final boolean isAccepting() {
+		for ( int j = 0, size = current.size(); j < size; j++ ) {
+			if ( nfa.accepting[current.get(j)] ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public final boolean isDead() {
+		return current.size() == 0;
+	}
+
+	@Override
+	public final void reset() {
+		reset( nfa.closures[nfa.initial] );
+	}
+
+	/**
+	 * Set the listener that is told about every step.
+	 *
+	 * @param listener the listener, or <code>null</code>
+	 */
+	final void setListener( MatchListener listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Make the given states the active states.
+	 *
+	 * @param from an epsilon-closed set of states
+	 */
+	final void reset( int[] from ) {
+		current.clear();
+		current.addAll(from);
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Simulates a nondeterministic table without allocating.
+ * <p>
+ * The active states are kept in two preallocated {@link SparseSet}s indexed by
+ * dense state numbers; each character fills one from the other and the two
+ * are swapped.  Epsilon closures are precomputed, so every step is a union of
+ * precomputed arrays.
+ * <p>
+ * Instances are snapshots of the table at creation time.  They keep their
+ * working sets between calls and are therefore not thread-safe; use one
+ * simulator per thread.  Each {@link #matcher()} has working sets of its own.
+ * <p>
+ * A {@link MatchListener} may be attached to measure computations and the
+ * size of the active set.
+ *
+ * @author jbrukh
+ *
+ */
+public final class NFASimulator implements Automaton {
+
+	// FIELDS //
+
+	private final IndexedNFA	nfa;
+	private final NFAMatcher	matcher;
+	private MatchListener		listener;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param nfa
+	 */
+	NFASimulator( IndexedNFA nfa ) {
+		this.nfa 		= nfa;
+		this.matcher 	= new NFAMatcher(nfa);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static NFASimulator create( NondeterministicTable table ) {
+		return new NFASimulator( IndexedNFA.of(table) );
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		checkNotNull(input, "Provide some input.");
+		long start = listener != null ? System.nanoTime() : 0;
+		matcher.reset();
+		boolean accepted = matcher.feed(input).isAccepting();
+		if ( listener != null ) {
+			listener.computed(input.length(), System.nanoTime()-start, accepted);
+		}
+		return accepted;
+	}
+
+	/**
+	 * Returns a new matcher in the initial state, with working sets of its own.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new NFAMatcher(nfa, listener);
+	}
+
+	/**
+	 * Set the listener that is told about computations and steps, including
+	 * those of matchers created afterwards.
+	 *
+	 * @param listener the listener, or <code>null</code> to stop measuring
+	 */
+	public final void setListener( MatchListener listener ) {
+		this.listener = listener;
+		matcher.setListener(listener);
+	}
+
+}
@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.*;
 
 import java.util.Set;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableSet;
@@ -47,6 +48,7 @@ public class NondeterministicTable extends AbstractTable<Set<State>> {
 			table.put(from, symbol, toStates);
 		}
 		toStates.add(to);
+		modified();
 	}
 
 	@Override
@@ -59,9 +61,97 @@ public class NondeterministicTable extends AbstractTable<Set<State>> {
 		checkNotNull(from);
 		checkNotNull(symbol);
 		Set<State> result = table.get(from, symbol);
+		RangeList<Set<State>> list = ranges.get(from);
+		Set<State> ranged = list == null ? null : list.get(symbol);
+		if ( ranged == null ) {
+			return result == null ? ImmutableSet.<State>of() : ImmutableSet.copyOf(result);
+		}
 		if ( result == null ) {
-			return ImmutableSet.of();
+			return ImmutableSet.copyOf(ranged);
 		}
-		return ImmutableSet.copyOf(result);
+		return ImmutableSet.<State>builder().addAll(result).addAll(ranged).build();
+	}
+
+	@Override
+	protected Function<Set<State>,Set<State>> rangeUpdate(final State to) {
+		return new Function<Set<State>,Set<State>>() {
+			@Override
+			public Set<State> apply(Set<State> current) {
+				if ( current == null ) {
+					return ImmutableSet.of(to);
+				}
+				return current.contains(to) ? current : ImmutableSet.<State>builder().addAll(current).add(to).build();
+			}
+		};
+	}
+
+	@Override
+	protected boolean leadsTo(Set<State> value, State state) {
+		return value.contains(state);
+	}
+
+	/**
+	 * Returns an equivalent deterministic table.
+	 * 
+	 * @return
+	 * @see Determinizer
+	 */
+	public DeterministicTable determinize() {
+		return Determinizer.determinize(this);
+	}
+
+	/**
+	 * Returns an equivalent deterministic table with at most the given
+	 * number of states.
+	 * 
+	 * @param maxStates
+	 * @return
+	 * @throws StateExplosionException if there would be more states
+	 * @see Determinizer
+	 */
+	public DeterministicTable determinize( int maxStates ) {
+		return Determinizer.determinize(this, maxStates);
+	}
+
+	/**
+	 * Returns an equivalent table without epsilon transitions.
+	 * 
+	 * @return
+	 * @see EpsilonEliminator
+	 */
+	public NFA eliminateEpsilons() {
+		return EpsilonEliminator.eliminate(this);
+	}
+
+	/**
+	 * Returns an allocation-free simulator of this table.
+	 * 
+	 * @return
+	 * @see NFASimulator
+	 */
+	public NFASimulator simulator() {
+		return NFASimulator.create(this);
+	}
+
+	/**
+	 * Returns an automaton that determinizes this table lazily, while matching.
+	 * 
+	 * @return
+	 * @see LazyDFA
+	 */
+	public LazyDFA lazy() {
+		return LazyDFA.create(this);
+	}
+
+	/**
+	 * Returns an automaton that determinizes this table lazily, while matching,
+	 * and caches at most the given number of states.
+	 * 
+	 * @param maxStates
+	 * @return
+	 * @see LazyDFA
+	 */
+	public LazyDFA lazy( int maxStates ) {
+		return LazyDFA.create(this, maxStates);
 	}
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ package org.brukhman.jfa.automaton;
 import static org.brukhman.jfa.automaton.Symbols.EPSILON;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
@@ -44,16 +46,22 @@ public final class NondeterministicTraverser extends TableTraverser<Nondetermini
 	
 	/**
 	 * DFS for epsilon-reachable states and place them in the provided result set.
+	 * States already in the result set are not explored again, so epsilon cycles
+	 * terminate.
 	 * 
 	 * @param from the starting state
 	 * @param reachable	the result set
 	 */
 	private final void epsilonClosure( State from, Set<State> reachable ) {
-		// get epsilon transitions
-		Collection<State> toStates = table.transition(from, EPSILON);
-		for ( State state : toStates ) {
-			reachable.add(state);
-			epsilonClosure(state,reachable);
+		List<State> stack = Lists.newArrayList(from);
+		while ( !stack.isEmpty() ) {
+			// get epsilon transitions
+			Collection<State> toStates = table.transition(stack.remove(stack.size()-1), EPSILON);
+			for ( State state : toStates ) {
+				if ( reachable.add(state) ) {
+					stack.add(state);
+				}
+			}
 		}
 	}
 	
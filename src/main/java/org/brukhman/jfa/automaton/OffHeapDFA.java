@@ -0,0 +1,417 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A compiled automaton whose transitions and accepting flags live outside
+ * the Java heap, for automata too large to keep as objects or even as
+ * <code>int</code> arrays.
+ * <p>
+ * States are numbered <code>0..n-1</code> as in {@link CompiledDFA}, with
+ * {@link CompiledDFA#DEAD} the rejecting sink.  Transitions are packed into
+ * direct buffers at one, two or four bytes each, the fewest that can hold
+ * every state number, and accepting flags are packed into a bit set.  Since
+ * a single buffer holds at most 2<sup>31</sup> bytes, the transitions are
+ * split into segments of {@link #SEGMENT_SIZE} bytes, which lets an automaton
+ * have tens of millions of states over many symbol classes.  The garbage
+ * collector sees one small object per segment, however large the automaton,
+ * so it does not slow down as automata grow.  Only the {@link Alphabet} is
+ * kept on the heap.
+ * <p>
+ * Automata are copied from a {@link CompiledDFA}, or written directly by a
+ * {@link Builder} when they are too large to ever exist on the heap.
+ * Instances are immutable, and may be shared between threads.
+ *
+ * @author jbrukh
+ *
+ */
+public final class OffHeapDFA implements Automaton {
+
+	// FIELDS //
+
+	/** The base-2 logarithm of the default segment size. */
+	private final static int DEFAULT_SEGMENT_SHIFT = 30;
+
+	/** The number of bytes in a full segment of transitions. */
+	public final static int SEGMENT_SIZE = 1 << DEFAULT_SEGMENT_SHIFT;
+
+	private final Alphabet		alphabet;
+	private final int			classCount;
+	private final int			stateCount;
+	private final int			initial;
+	private final int			widthShift;
+	private final int			segmentShift;
+	private final long			segmentMask;
+	private final ByteBuffer[]	segments;
+	private final ByteBuffer	accepting;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param builder
+	 */
+	private OffHeapDFA( Builder builder ) {
+		this.alphabet 		= builder.alphabet;
+		this.classCount 	= builder.classCount;
+		this.stateCount 	= builder.stateCount;
+		this.initial 		= builder.initial;
+		this.widthShift 	= builder.widthShift;
+		this.segmentShift 	= builder.segmentShift;
+		this.segmentMask 	= builder.segmentMask;
+		this.segments 		= builder.segments;
+		this.accepting 		= builder.accepting;
+	}
+
+	/**
+	 * Copy the given automaton off the heap.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	public final static OffHeapDFA copyOf( CompiledDFA dfa ) {
+		checkNotNull(dfa, "Provide an automaton.");
+		Alphabet alphabet = dfa.getAlphabet();
+		int classCount = alphabet.getClassCount();
+		int[] transitions = dfa.transitions();
+		Builder builder = builder(alphabet, dfa.getStateCount());
+		for ( int state = 0; state < dfa.getStateCount(); state++ ) {
+			for ( int symbolClass = 0; symbolClass < classCount; symbolClass++ ) {
+				int to = transitions[state*classCount+symbolClass];
+				if ( to != CompiledDFA.DEAD ) {
+					builder.setClassTransition(state, symbolClass, to);
+				}
+			}
+			if ( dfa.isAccepting(state) ) {
+				builder.setAccepting(state);
+			}
+		}
+		return builder.setInitial(dfa.getInitial()).build();
+	}
+
+	/**
+	 * Returns a builder for an automaton with the given alphabet and number
+	 * of states, including the dead state, in which every transition leads
+	 * to the dead state until it is set.
+	 *
+	 * @param alphabet
+	 * @param stateCount
+	 * @return
+	 */
+	public final static Builder builder( Alphabet alphabet, int stateCount ) {
+		return new Builder(alphabet, stateCount, DEFAULT_SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Returns a builder that splits transitions into segments of
+	 * <code>2<sup>segmentShift</sup></code> bytes.
+	 *
+	 * @param alphabet
+	 * @param stateCount
+	 * @param segmentShift
+	 * @return
+	 */
+	final static Builder builder( Alphabet alphabet, int stateCount, int segmentShift ) {
+		return new Builder(alphabet, stateCount, segmentShift);
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		return compute((CharSequence)input);
+	}
+
+	/**
+	 * Runs the automaton on the given input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final boolean compute( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		int state = initial;
+		for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+			state = transition(state, alphabet.classOf(input.charAt(i)));
+		}
+		return isAccepting(state);
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new OffHeapMatcher();
+	}
+
+	/**
+	 * Returns the state reached from the given state on the given symbol.
+	 *
+	 * @param state
+	 * @param symbol
+	 * @return
+	 */
+	public final int step( int state, char symbol ) {
+		checkElementIndex(state, stateCount);
+		return transition(state, alphabet.classOf(symbol));
+	}
+
+	/**
+	 * Returns true if and only if the given state is accepting.
+	 *
+	 * @param state
+	 * @return
+	 */
+	public final boolean isAccepting( int state ) {
+		return (accepting.getLong((state >>> 6) << 3) & (1L << state)) != 0;
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return
+	 */
+	public final int getInitial() {
+		return initial;
+	}
+
+	/**
+	 * Returns the number of states, including the dead state.
+	 *
+	 * @return
+	 */
+	public final int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns the alphabet.
+	 *
+	 * @return
+	 */
+	public final Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * Returns the number of bytes held outside the heap.
+	 *
+	 * @return
+	 */
+	public final long getOffHeapSize() {
+		long size = accepting.capacity();
+		for ( ByteBuffer segment : segments ) {
+			size += segment.capacity();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes per transition.
+	 *
+	 * @return
+	 */
+	final int getTransitionSize() {
+		return 1 << widthShift;
+	}
+
+	/**
+	 * Returns the transition of the given state on the given class.
+	 *
+	 * @param state
+	 * @param symbolClass
+	 * @return
+	 */
+	private final int transition( int state, int symbolClass ) {
+		long offset = ((long)state*classCount + symbolClass) << widthShift;
+		ByteBuffer segment = segments[(int)(offset >>> segmentShift)];
+		int position = (int)(offset & segmentMask);
+		switch ( widthShift ) {
+		case 0:
+			return segment.get(position) & 0xFF;
+		case 1:
+			return segment.getChar(position);
+		default:
+			return segment.getInt(position);
+		}
+	}
+
+	/**
+	 * Writes an {@link OffHeapDFA} directly into its buffers, one transition
+	 * at a time.  Builders are not thread-safe, and may only build once.
+	 */
+	public final static class Builder {
+
+		private final Alphabet		alphabet;
+		private final int			classCount;
+		private final int			stateCount;
+		private final int			widthShift;
+		private final int			segmentShift;
+		private final long			segmentMask;
+		private final ByteBuffer[]	segments;
+		private final ByteBuffer	accepting;
+		private int					initial = CompiledDFA.DEAD;
+		private boolean				built;
+
+		/**
+		 * Create a new instance, allocating every buffer.
+		 *
+		 * @param alphabet
+		 * @param stateCount
+		 * @param segmentShift
+		 */
+		private Builder( Alphabet alphabet, int stateCount, int segmentShift ) {
+			checkNotNull(alphabet, "Provide an alphabet.");
+			checkArgument(stateCount > 0, "There must be at least the dead state.");
+			checkArgument(2 <= segmentShift && segmentShift <= DEFAULT_SEGMENT_SHIFT, "Invalid segment size.");
+			this.alphabet 		= alphabet;
+			this.classCount 	= alphabet.getClassCount();
+			this.stateCount 	= stateCount;
+			this.widthShift 	= stateCount <= 1 << 8 ? 0 : stateCount <= 1 << 16 ? 1 : 2;
+			this.segmentShift 	= segmentShift;
+			this.segmentMask 	= (1L << segmentShift) - 1;
+
+			long size = ((long)stateCount*classCount) << widthShift;
+			int count = (int)((size + segmentMask) >>> segmentShift);
+			this.segments = new ByteBuffer[count];
+			for ( int i = 0; i < count; i++ ) {
+				long remaining = size - ((long)i << segmentShift);
+				segments[i] = ByteBuffer
+						.allocateDirect( (int)Math.min(remaining, 1L << segmentShift) )
+						.order(ByteOrder.nativeOrder());
+			}
+			this.accepting = ByteBuffer
+					.allocateDirect( ((stateCount+63) >>> 6) << 3 )
+					.order(ByteOrder.nativeOrder());
+		}
+
+		/**
+		 * Set the transition of the given state on the whole class of the
+		 * given symbol.
+		 *
+		 * @param from
+		 * @param symbol
+		 * @param to
+		 * @return this builder
+		 */
+		public final Builder setTransition( int from, char symbol, int to ) {
+			return setClassTransition(from, alphabet.classOf(symbol), to);
+		}
+
+		/**
+		 * Set the transition of the given state on the given class.
+		 *
+		 * @param from
+		 * @param symbolClass
+		 * @param to
+		 * @return this builder
+		 */
+		public final Builder setClassTransition( int from, int symbolClass, int to ) {
+			checkState(!built, "The automaton has been built.");
+			checkElementIndex(from, stateCount);
+			checkElementIndex(symbolClass, classCount);
+			checkElementIndex(to, stateCount);
+			checkArgument(from != CompiledDFA.DEAD || to == CompiledDFA.DEAD, "The dead state cannot be left.");
+			long offset = ((long)from*classCount + symbolClass) << widthShift;
+			ByteBuffer segment = segments[(int)(offset >>> segmentShift)];
+			int position = (int)(offset & segmentMask);
+			switch ( widthShift ) {
+			case 0:
+				segment.put(position, (byte)to);
+				break;
+			case 1:
+				segment.putChar(position, (char)to);
+				break;
+			default:
+				segment.putInt(position, to);
+			}
+			return this;
+		}
+
+		/**
+		 * Make the given state accepting.
+		 *
+		 * @param state
+		 * @return this builder
+		 */
+		public final Builder setAccepting( int state ) {
+			checkState(!built, "The automaton has been built.");
+			checkElementIndex(state, stateCount);
+			checkArgument(state != CompiledDFA.DEAD, "The dead state cannot accept.");
+			int index = (state >>> 6) << 3;
+			accepting.putLong(index, accepting.getLong(index) | (1L << state));
+			return this;
+		}
+
+		/**
+		 * Make the given state the initial state, which is the dead state
+		 * unless set.
+		 *
+		 * @param state
+		 * @return this builder
+		 */
+		public final Builder setInitial( int state ) {
+			checkState(!built, "The automaton has been built.");
+			checkElementIndex(state, stateCount);
+			this.initial = state;
+			return this;
+		}
+
+		/**
+		 * Returns the automaton.  The builder hands over its buffers, and
+		 * cannot be used afterwards.
+		 *
+		 * @return
+		 */
+		public final OffHeapDFA build() {
+			checkState(!built, "The automaton has been built.");
+			built = true;
+			return new OffHeapDFA(this);
+		}
+	}
+
+	/**
+	 * A matcher that keeps the current state number.
+	 */
+	private final class OffHeapMatcher extends AbstractMatcher {
+
+		private int state = initial;
+
+		@Override
+		public final Matcher feed( char[] buffer, int offset, int length ) {
+			checkNotNull(buffer, "Provide a buffer.");
+			checkPositionIndexes(offset, offset+length, buffer.length);
+			for ( int i = offset, end = offset+length; i < end && state != CompiledDFA.DEAD; i++ ) {
+				state = transition(state, alphabet.classOf(buffer[i]));
+			}
+			return this;
+		}
+
+		@Override
+		public final Matcher feed( CharSequence input ) {
+			checkNotNull(input, "Provide some input.");
+			for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+				state = transition(state, alphabet.classOf(input.charAt(i)));
+			}
+			return this;
+		}
+
+		@Override
+		public final boolean isAccepting() {
+			return OffHeapDFA.this.isAccepting(state);
+		}
+
+		@Override
+		public final boolean isDead() {
+			return state == CompiledDFA.DEAD;
+		}
+
+		@Override
+		public final void reset() {
+			state = initial;
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Runs a compiled automaton on one large input on several threads.
+ * <p>
+ * The input is split into chunks.  The first chunk is run from the initial
+ * state; every other chunk is run speculatively from every state, giving a
+ * mapping from the state the chunk starts in to the state it ends in.  The
+ * mappings are then composed in order.  Runs from different states usually
+ * converge after a few characters, so the runs of a chunk are merged as soon
+ * as they reach the same state, and the speculative work stays close to that
+ * of a single run.
+ *
+ * @author jbrukh
+ *
+ */
+public final class ParallelDFA {
+
+	/** The smallest chunk that is worth running on another thread. */
+	public final static int MIN_CHUNK_SIZE = 1 << 16;
+
+	/** The number of characters between merges of converged runs. */
+	private final static int MERGE_INTERVAL = 32;
+
+	/**
+	 * Use the static methods.
+	 */
+	private ParallelDFA() {
+	}
+
+	/**
+	 * Runs the automaton on the given input, split into chunks for the
+	 * available processors.
+	 *
+	 * @param dfa
+	 * @param input
+	 * @param executor
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public final static boolean compute( CompiledDFA dfa, CharSequence input, ExecutorService executor )
+			throws InterruptedException {
+		checkNotNull(input, "Provide some input.");
+		int processors = Runtime.getRuntime().availableProcessors();
+		return compute(dfa, input, executor, Math.max(MIN_CHUNK_SIZE, input.length()/(4*processors)+1));
+	}
+
+	/**
+	 * Runs the automaton on the given input, split into chunks of the given size.
+	 *
+	 * @param dfa
+	 * @param input
+	 * @param executor
+	 * @param chunkSize
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public final static boolean compute( final CompiledDFA dfa, final CharSequence input, ExecutorService executor,
+			int chunkSize ) throws InterruptedException {
+		checkNotNull(dfa, "Provide an automaton.");
+		checkNotNull(input, "Provide some input.");
+		checkNotNull(executor, "Provide an executor.");
+		checkArgument(chunkSize > 0, "The chunk size must be positive.");
+
+		final int length = input.length();
+		if ( length <= chunkSize ) {
+			return dfa.isAccepting( run(dfa, dfa.getInitial(), input, 0, length) );
+		}
+
+		List<Future<int[]>> mappings = Lists.newArrayList();
+		for ( int start = chunkSize; start < length; start += chunkSize ) {
+			final int from = start, to = (int)Math.min((long)start+chunkSize, length);
+			mappings.add( executor.submit(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					return mapping(dfa, input, from, to);
+				}
+			}) );
+		}
+
+		try {
+			int state = run(dfa, dfa.getInitial(), input, 0, chunkSize);
+			for ( Future<int[]> mapping : mappings ) {
+				state = mapping.get()[state];
+			}
+			return dfa.isAccepting(state);
+		} catch ( ExecutionException e ) {
+			throw new IllegalStateException("A chunk could not be computed.", e.getCause());
+		} finally {
+			for ( Future<int[]> mapping : mappings ) {
+				mapping.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Returns the state reached from the given state on the input in
+	 * <code>from..to-1</code>.
+	 *
+	 * @param dfa
+	 * @param state
+	 * @param input
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private final static int run( CompiledDFA dfa, int state, CharSequence input, int from, int to ) {
+		int[] transitions = dfa.transitions();
+		Alphabet alphabet = dfa.getAlphabet();
+		int classCount = alphabet.getClassCount();
+		for ( int i = from; i < to && state != CompiledDFA.DEAD; i++ ) {
+			state = transitions[state*classCount + alphabet.classOf(input.charAt(i))];
+		}
+		return state;
+	}
+
+	/**
+	 * Returns, for every state, the state reached from it on the input in
+	 * <code>from..to-1</code>.
+	 *
+	 * @param dfa
+	 * @param input
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	final static int[] mapping( CompiledDFA dfa, CharSequence input, int from, int to ) {
+		int[] transitions = dfa.transitions();
+		Alphabet alphabet = dfa.getAlphabet();
+		int classCount = alphabet.getClassCount();
+		int n = dfa.getStateCount();
+
+		// run r is in state runs[r]; start state s follows run runOf[s]
+		int[] runs = new int[n];
+		int[] runOf = new int[n];
+		for ( int s = 0; s < n; s++ ) {
+			runs[s] = s;
+			runOf[s] = s;
+		}
+		int count = n;
+		int[] runAt = new int[n];
+		Arrays.fill(runAt, -1);
+		int[] merged = new int[n];
+
+		for ( int i = from; i < to; ) {
+			int end = Math.min(i+MERGE_INTERVAL, to);
+			if ( count == 1 ) {
+				runs[0] = run(dfa, runs[0], input, i, to);
+				break;
+			}
+			for ( ; i < end; i++ ) {
+				int symbolClass = alphabet.classOf(input.charAt(i));
+				for ( int r = 0; r < count; r++ ) {
+					runs[r] = transitions[runs[r]*classCount + symbolClass];
+				}
+			}
+			// merge the runs that are in the same state
+			int distinct = 0;
+			for ( int r = 0; r < count; r++ ) {
+				int state = runs[r];
+				if ( runAt[state] == -1 ) {
+					runAt[state] = distinct;
+					runs[distinct++] = state;
+				}
+				merged[r] = runAt[state];
+			}
+			for ( int r = 0; r < distinct; r++ ) {
+				runAt[runs[r]] = -1;
+			}
+			if ( distinct < count ) {
+				for ( int s = 0; s < n; s++ ) {
+					runOf[s] = merged[runOf[s]];
+				}
+				count = distinct;
+			}
+		}
+
+		int[] mapping = new int[n];
+		for ( int s = 0; s < n; s++ ) {
+			mapping[s] = runs[runOf[s]];
+		}
+		return mapping;
+	}
+
+}
@@ -0,0 +1,347 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The intersection, union or difference of two compiled automata, by the
+ * product construction.
+ * <p>
+ * Each state of the product is a pair of states of the operands, and reading
+ * a character moves both.  Pairs are numbered as input first reaches them,
+ * and each transition is computed the first time it is taken, so running
+ * the product costs about as much as running both operands, and the full
+ * product, whose size is that of the operands multiplied, is only built by
+ * {@link #compile()}.  Pairs from which nothing can be accepted because one
+ * operand is dead are merged into the product's {@link CompiledDFA#DEAD} state.
+ * <p>
+ * The two operands are read with a joint alphabet, whose classes are the
+ * nonempty intersections of the classes of the operands.
+ * <p>
+ * Instances are not thread-safe, since the product grows while it computes;
+ * use one instance per thread, or {@link #compile()} it.
+ *
+ * @author jbrukh
+ *
+ */
+public final class ProductDFA implements Automaton {
+
+	// FIELDS //
+
+	/** Marks a transition that has not been computed. */
+	private final static int UNKNOWN = -1;
+
+	/** The boolean operations. */
+	private enum Operation {
+
+		INTERSECTION {
+			@Override
+			boolean accepts( boolean left, boolean right ) {
+				return left && right;
+			}
+
+			@Override
+			boolean isDead( int left, int right ) {
+				return left == CompiledDFA.DEAD || right == CompiledDFA.DEAD;
+			}
+		},
+
+		UNION {
+			@Override
+			boolean accepts( boolean left, boolean right ) {
+				return left || right;
+			}
+
+			@Override
+			boolean isDead( int left, int right ) {
+				return left == CompiledDFA.DEAD && right == CompiledDFA.DEAD;
+			}
+		},
+
+		DIFFERENCE {
+			@Override
+			boolean accepts( boolean left, boolean right ) {
+				return left && !right;
+			}
+
+			@Override
+			boolean isDead( int left, int right ) {
+				return left == CompiledDFA.DEAD;
+			}
+		};
+
+		/**
+		 * Returns true if a pair of states with the given acceptance accepts.
+		 *
+		 * @param left
+		 * @param right
+		 * @return
+		 */
+		abstract boolean accepts( boolean left, boolean right );
+
+		/**
+		 * Returns true if nothing can be accepted from the given pair.
+		 *
+		 * @param left
+		 * @param right
+		 * @return
+		 */
+		abstract boolean isDead( int left, int right );
+	}
+
+	private final CompiledDFA			left, right;
+	private final int[]					leftTransitions, rightTransitions;
+	private final int					leftClassCount, rightClassCount;
+	private final Operation				operation;
+	private final Alphabet				alphabet;
+	private final int					classCount;
+	private final int[]					leftClasses, rightClasses;
+	private final int					initial;
+
+	private final Map<Long,Integer>		index;
+	private int[]						lefts, rights;
+	private boolean[]					accepting;
+	private int[]						transitions;
+	private int							stateCount;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param left
+	 * @param right
+	 * @param operation
+	 */
+	private ProductDFA( CompiledDFA left, CompiledDFA right, Operation operation ) {
+		checkNotNull(left, "Provide an automaton.");
+		checkNotNull(right, "Provide an automaton.");
+		this.left 		= left;
+		this.right 		= right;
+		this.operation 	= operation;
+		this.leftTransitions 	= left.transitions();
+		this.rightTransitions 	= right.transitions();
+		this.leftClassCount 	= left.getAlphabet().getClassCount();
+		this.rightClassCount 	= right.getAlphabet().getClassCount();
+
+		this.alphabet 		= Alphabet.product(left.getAlphabet(), right.getAlphabet());
+		this.classCount 	= alphabet.getClassCount();
+		this.leftClasses 	= new int[classCount];
+		this.rightClasses 	= new int[classCount];
+		for ( int symbolClass = 1; symbolClass < classCount; symbolClass++ ) {
+			char symbol = (char)alphabet.representative(symbolClass);
+			leftClasses[symbolClass] 	= left.getAlphabet().classOf(symbol);
+			rightClasses[symbolClass] 	= right.getAlphabet().classOf(symbol);
+		}
+
+		this.index 			= Maps.newHashMap();
+		this.lefts 			= new int[16];
+		this.rights 		= new int[16];
+		this.accepting 		= new boolean[16];
+		this.transitions 	= new int[16*classCount];
+		intern(CompiledDFA.DEAD, CompiledDFA.DEAD);
+		Arrays.fill(transitions, 0, classCount, CompiledDFA.DEAD);
+		this.initial 		= intern(left.getInitial(), right.getInitial());
+	}
+
+	/**
+	 * Returns the automaton that accepts what both given automata accept.
+	 *
+	 * @param left
+	 * @param right
+	 * @return
+	 */
+	public final static ProductDFA intersection( CompiledDFA left, CompiledDFA right ) {
+		return new ProductDFA(left, right, Operation.INTERSECTION);
+	}
+
+	/**
+	 * Returns the automaton that accepts what either given automaton accepts.
+	 *
+	 * @param left
+	 * @param right
+	 * @return
+	 */
+	public final static ProductDFA union( CompiledDFA left, CompiledDFA right ) {
+		return new ProductDFA(left, right, Operation.UNION);
+	}
+
+	/**
+	 * Returns the automaton that accepts what the left automaton accepts
+	 * and the right one does not.
+	 *
+	 * @param left
+	 * @param right
+	 * @return
+	 */
+	public final static ProductDFA difference( CompiledDFA left, CompiledDFA right ) {
+		return new ProductDFA(left, right, Operation.DIFFERENCE);
+	}
+
+	@Override
+	public final boolean compute( String input ) {
+		return compute((CharSequence)input);
+	}
+
+	/**
+	 * Runs the automaton on the given input.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final boolean compute( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		int state = initial;
+		for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+			state = step(state, alphabet.classOf(input.charAt(i)));
+		}
+		return accepting[state];
+	}
+
+	/**
+	 * Returns a new matcher in the initial state.  Matchers grow the product
+	 * of this instance, so they may only be used from the thread that uses it.
+	 *
+	 * @return
+	 */
+	public final Matcher matcher() {
+		return new ProductMatcher();
+	}
+
+	/**
+	 * Returns the number of states constructed so far, including the dead state.
+	 *
+	 * @return
+	 */
+	public final int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Construct every reachable state and return the product as a compiled
+	 * automaton.
+	 *
+	 * @return
+	 */
+	public final CompiledDFA compile() {
+		for ( int state = 0; state < stateCount; state++ ) {
+			for ( int symbolClass = Alphabet.OTHER; symbolClass < classCount; symbolClass++ ) {
+				step(state, symbolClass);
+			}
+		}
+		return new CompiledDFA(
+				alphabet,
+				Arrays.copyOf(transitions, stateCount*classCount),
+				Arrays.copyOf(accepting, stateCount),
+				initial
+		);
+	}
+
+	/**
+	 * Returns the state reached from the given state on the given class,
+	 * computing the transition if necessary.
+	 *
+	 * @param state
+	 * @param symbolClass
+	 * @return
+	 */
+	private final int step( int state, int symbolClass ) {
+		int to = transitions[state*classCount + symbolClass];
+		if ( to == UNKNOWN ) {
+			to = intern(
+					leftTransitions[lefts[state]*leftClassCount + leftClasses[symbolClass]],
+					rightTransitions[rights[state]*rightClassCount + rightClasses[symbolClass]]
+			);
+			transitions[state*classCount + symbolClass] = to;
+		}
+		return to;
+	}
+
+	/**
+	 * Returns the number of the given pair of states, numbering it if necessary.
+	 *
+	 * @param leftState
+	 * @param rightState
+	 * @return
+	 */
+	private final int intern( int leftState, int rightState ) {
+		if ( stateCount > 0 && operation.isDead(leftState, rightState) ) {
+			return CompiledDFA.DEAD;
+		}
+		Long key = pair(leftState, rightState);
+		Integer state = index.get(key);
+		if ( state != null ) {
+			return state;
+		}
+		if ( stateCount == accepting.length ) {
+			int capacity = 2*stateCount;
+			lefts 		= Arrays.copyOf(lefts, capacity);
+			rights 		= Arrays.copyOf(rights, capacity);
+			accepting 	= Arrays.copyOf(accepting, capacity);
+			transitions = Arrays.copyOf(transitions, capacity*classCount);
+		}
+		int number = stateCount++;
+		lefts[number] 		= leftState;
+		rights[number] 		= rightState;
+		accepting[number] 	= operation.accepts( left.isAccepting(leftState), right.isAccepting(rightState) );
+		Arrays.fill(transitions, number*classCount, (number+1)*classCount, UNKNOWN);
+		index.put(key, number);
+		return number;
+	}
+
+	/**
+	 * Returns the key of a pair of numbers.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	private final static long pair( int first, int second ) {
+		return ((long)first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * A matcher that keeps the current pair of states.
+	 */
+	private final class ProductMatcher extends AbstractMatcher {
+
+		private int state = initial;
+
+		@Override
+		public final Matcher feed( char[] buffer, int offset, int length ) {
+			checkNotNull(buffer, "Provide a buffer.");
+			checkPositionIndexes(offset, offset+length, buffer.length);
+			for ( int i = offset, end = offset+length; i < end && state != CompiledDFA.DEAD; i++ ) {
+				state = step(state, alphabet.classOf(buffer[i]));
+			}
+			return this;
+		}
+
+		@Override
+		public final Matcher feed( CharSequence input ) {
+			checkNotNull(input, "Provide some input.");
+			for ( int i = 0, length = input.length(); i < length && state != CompiledDFA.DEAD; i++ ) {
+				state = step(state, alphabet.classOf(input.charAt(i)));
+			}
+			return this;
+		}
+
+		@Override
+		public final boolean isAccepting() {
+			return accepting[state];
+		}
+
+		@Override
+		public final boolean isDead() {
+			return state == CompiledDFA.DEAD;
+		}
+
+		@Override
+		public final void reset() {
+			state = initial;
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.Arrays;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+
+/**
+ * The range transitions out of a single state: a sorted list of disjoint
+ * character ranges, each with a transition value, searched by binary search.
+ *
+ * @author jbrukh
+ *
+ * @param <T> the transition value
+ */
+final class RangeList<T> {
+
+	// FIELDS //
+
+	private char[]		firsts	= new char[0];
+	private char[]		lasts	= new char[0];
+	private Object[]	values	= new Object[0];
+
+	/**
+	 * Returns the value of the range that contains the given symbol, or
+	 * <code>null</code> if there is none.
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	final T get( char symbol ) {
+		int index = Arrays.binarySearch(firsts, symbol);
+		if ( index < 0 ) {
+			index = -index-2;
+		}
+		return index >= 0 && symbol <= lasts[index] ? (T)values[index] : null;
+	}
+
+	/**
+	 * Set the value of every symbol in <code>first..last</code> to the result of
+	 * applying the update to its current value, which is <code>null</code> for
+	 * symbols that had none.
+	 *
+	 * @param first
+	 * @param last
+	 * @param update
+	 */
+	@SuppressWarnings("unchecked")
+	final void put( char first, char last, Function<? super T,? extends T> update ) {
+		int capacity = 2*firsts.length+3;
+		char[] newFirsts = new char[capacity];
+		char[] newLasts = new char[capacity];
+		Object[] newValues = new Object[capacity];
+		int size = 0;
+
+		int cursor = first;
+		for ( int i = 0; i < firsts.length; i++ ) {
+			char f = firsts[i], l = lasts[i];
+			T value = (T)values[i];
+			if ( l < first || f > last ) {
+				if ( f > last && cursor <= last ) {
+					size = add(newFirsts, newLasts, newValues, size, cursor, last, update.apply(null));
+					cursor = last+1;
+				}
+				size = add(newFirsts, newLasts, newValues, size, f, l, value);
+				continue;
+			}
+			if ( f < first ) {
+				size = add(newFirsts, newLasts, newValues, size, f, first-1, value);
+			}
+			int overlapFirst = Math.max(f, first), overlapLast = Math.min(l, last);
+			if ( cursor < overlapFirst ) {
+				size = add(newFirsts, newLasts, newValues, size, cursor, overlapFirst-1, update.apply(null));
+			}
+			size = add(newFirsts, newLasts, newValues, size, overlapFirst, overlapLast, update.apply(value));
+			cursor = overlapLast+1;
+			if ( l > last ) {
+				size = add(newFirsts, newLasts, newValues, size, last+1, l, value);
+			}
+		}
+		if ( cursor <= last ) {
+			size = add(newFirsts, newLasts, newValues, size, cursor, last, update.apply(null));
+		}
+
+		firsts 	= Arrays.copyOf(newFirsts, size);
+		lasts 	= Arrays.copyOf(newLasts, size);
+		values 	= Arrays.copyOf(newValues, size);
+	}
+
+	/**
+	 * Returns the number of ranges.
+	 *
+	 * @return
+	 */
+	final int size() {
+		return firsts.length;
+	}
+
+	/**
+	 * Returns the first symbol of the given range.
+	 *
+	 * @param range
+	 * @return
+	 */
+	final char getFirst( int range ) {
+		return firsts[range];
+	}
+
+	/**
+	 * Returns the last symbol of the given range.
+	 *
+	 * @param range
+	 * @return
+	 */
+	final char getLast( int range ) {
+		return lasts[range];
+	}
+
+	/**
+	 * Append a range to the arrays, merging it with the previous range if they
+	 * are adjacent and have equal values, and return the new size.
+	 */
+	private final int add( char[] newFirsts, char[] newLasts, Object[] newValues, int size,
+			int first, int last, Object value ) {
+		if ( size > 0 && newLasts[size-1]+1 == first && Objects.equal(newValues[size-1], value) ) {
+			newLasts[size-1] = (char)last;
+			return size;
+		}
+		newFirsts[size] = (char)first;
+		newLasts[size] 	= (char)last;
+		newValues[size] = value;
+		return size+1;
+	}
+
+}
@@ -0,0 +1,236 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Finds the leftmost-longest matches of a compiled automaton inside larger
+ * inputs.
+ * <p>
+ * Besides the minimized automaton itself, a searcher holds a <i>reverse</i>
+ * automaton, whose states are the sets of forward states that can still
+ * reach an accepting state on what is left of the input.  A single pass
+ * of it backwards over the input gives that set at every position; a match
+ * starts wherever the set holds the initial state.  The forward automaton,
+ * run from the leftmost start, stops as soon as its state leaves the set,
+ * which is right after the longest match.  Finding all non-overlapping
+ * matches therefore takes one backward pass and one forward pass over the
+ * input, each linear in its length.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Searcher {
+
+	// FIELDS //
+
+	private final CompiledDFA	forward;
+	private final CompiledDFA	reverse;
+	private final BitSet[]		live;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param forward
+	 * @param reverse
+	 * @param live the forward states of each reverse state
+	 */
+	private Searcher( CompiledDFA forward, CompiledDFA reverse, BitSet[] live ) {
+		this.forward 	= forward;
+		this.reverse 	= reverse;
+		this.live 		= live;
+	}
+
+	/**
+	 * Create a new instance for the given automaton.
+	 *
+	 * @param dfa
+	 * @return
+	 * @throws StateExplosionException if the reverse automaton has too many states
+	 */
+	public final static Searcher create( CompiledDFA dfa ) {
+		checkNotNull(dfa, "Provide an automaton.");
+		CompiledDFA forward = dfa.minimize();
+		List<BitSet> live = Lists.newArrayList();
+		CompiledDFA reverse = reverse(forward, live);
+		return new Searcher( forward, reverse, live.toArray(new BitSet[live.size()]) );
+	}
+
+	/**
+	 * Returns the leftmost-longest match that starts at or after the given
+	 * index, or <code>null</code> if there is none.
+	 *
+	 * @param input
+	 * @param from
+	 * @return
+	 */
+	public final Match find( CharSequence input, int from ) {
+		checkNotNull(input, "Provide some input.");
+		checkPositionIndex(from, input.length());
+		int[] suffixes = suffixes(input, from);
+		for ( int start = from, length = input.length(); start <= length; start++ ) {
+			if ( reverse.isAccepting(suffixes[start-from]) ) {
+				return new Match(start, longest(input, start, suffixes, from));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the non-overlapping leftmost-longest matches in the input, from
+	 * left to right.  After an empty match, the search resumes one character
+	 * later.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public final List<Match> findAll( CharSequence input ) {
+		checkNotNull(input, "Provide some input.");
+		List<Match> matches = Lists.newArrayList();
+		int[] suffixes = suffixes(input, 0);
+		for ( int start = 0, length = input.length(); start <= length; ) {
+			if ( reverse.isAccepting(suffixes[start]) ) {
+				int end = longest(input, start, suffixes, 0);
+				matches.add( new Match(start, end) );
+				start = end > start ? end : start+1;
+			} else {
+				start++;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the reverse states at the positions <code>from..length</code>,
+	 * indexed from <code>from</code>.
+	 *
+	 * @param input
+	 * @param from
+	 * @return
+	 */
+	private final int[] suffixes( CharSequence input, int from ) {
+		int length = input.length();
+		int[] suffixes = new int[length-from+1];
+		int state = reverse.getInitial();
+		suffixes[length-from] = state;
+		for ( int i = length-1; i >= from; i-- ) {
+			state = reverse.step(state, input.charAt(i));
+			suffixes[i-from] = state;
+		}
+		return suffixes;
+	}
+
+	/**
+	 * Returns the end of the longest match that starts at the given position,
+	 * where some match is known to start.  Reads at most one character past
+	 * the end of the match.
+	 *
+	 * @param input
+	 * @param start
+	 * @param suffixes the reverse states, indexed from <code>from</code>
+	 * @param from
+	 * @return
+	 */
+	private final int longest( CharSequence input, int start, int[] suffixes, int from ) {
+		int state = forward.getInitial();
+		int end = start;
+		for ( int i = start, length = input.length(); ; i++ ) {
+			if ( forward.isAccepting(state) ) {
+				end = i;
+			}
+			if ( i == length ) {
+				break;
+			}
+			state = forward.step(state, input.charAt(i));
+			if ( !live[suffixes[i+1-from]].get(state) ) {
+				// the match cannot get any longer
+				break;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Returns an automaton that, run backwards, is in the state for the set
+	 * of states of the given automaton from which the rest of the input can
+	 * be accepted.  It accepts when that set holds the initial state.  The
+	 * sets are added to the given list, numbered by state.
+	 *
+	 * @param dfa
+	 * @param sets
+	 * @return
+	 */
+	private final static CompiledDFA reverse( CompiledDFA dfa, List<BitSet> sets ) {
+		int classCount = dfa.getAlphabet().getClassCount();
+		int stateCount = dfa.getStateCount();
+		int[] transitions = dfa.transitions();
+
+		// every set holds the accepting states, which accept the empty rest
+		BitSet accepting = new BitSet(stateCount);
+		for ( int state = 1; state < stateCount; state++ ) {
+			if ( dfa.isAccepting(state) ) {
+				accepting.set(state);
+			}
+		}
+
+		// the empty set is the dead state, reached only if nothing accepts
+		Map<BitSet,Integer> index = Maps.newHashMap();
+		Queue<Integer> pending = Lists.newLinkedList();
+		sets.add(new BitSet());
+		index.put(new BitSet(), CompiledDFA.DEAD);
+		int initial = intern(accepting, index, sets, pending);
+
+		int[] reverse = new int[Math.max(2, sets.size())*classCount];
+		while ( !pending.isEmpty() ) {
+			int from = pending.remove();
+			BitSet set = sets.get(from);
+			while ( reverse.length < (from+1)*classCount ) {
+				reverse = Arrays.copyOf(reverse, 2*reverse.length);
+			}
+			for ( int symbolClass = Alphabet.OTHER; symbolClass < classCount; symbolClass++ ) {
+				BitSet previous = (BitSet)accepting.clone();
+				for ( int state = 1; state < stateCount; state++ ) {
+					if ( set.get(transitions[state*classCount+symbolClass]) ) {
+						previous.set(state);
+					}
+				}
+				reverse[from*classCount+symbolClass] = intern(previous, index, sets, pending);
+			}
+		}
+
+		boolean[] starts = new boolean[sets.size()];
+		for ( int state = 0; state < starts.length; state++ ) {
+			starts[state] = sets.get(state).get(dfa.getInitial());
+		}
+		return new CompiledDFA(dfa.getAlphabet(), Arrays.copyOf(reverse, sets.size()*classCount), starts, initial);
+	}
+
+	/**
+	 * Returns the number of the given set of states, numbering it if it is new.
+	 */
+	private final static int intern( BitSet set, Map<BitSet,Integer> index, List<BitSet> sets,
+			Queue<Integer> pending ) {
+		Integer state = index.get(set);
+		if ( state == null ) {
+			if ( sets.size() > Determinizer.DEFAULT_MAX_STATES ) {
+				throw new StateExplosionException(Determinizer.DEFAULT_MAX_STATES);
+			}
+			state = sets.size();
+			sets.add(set);
+			index.put(set, state);
+			pending.add(state);
+		}
+		return state;
+	}
+
+}
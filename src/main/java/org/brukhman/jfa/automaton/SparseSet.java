@@ -0,0 +1,99 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * A set of integers in <code>0..capacity-1</code> with constant-time
+ * insertion, membership and clearing, and iteration in insertion order.
+ * <p>
+ * This is the sparse set of Briggs and Torczon: <code>dense</code> lists
+ * the members and <code>sparse</code> maps a member to its position in
+ * <code>dense</code>.  Neither array needs to be initialized, so clearing
+ * only resets the size.
+ *
+ * @author jbrukh
+ *
+ */
+final class SparseSet {
+
+	// FIELDS //
+
+	private final int[] dense;
+	private final int[] sparse;
+	private int size;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param capacity
+	 */
+	SparseSet( int capacity ) {
+		checkArgument(capacity >= 0, "Provide a non-negative capacity.");
+		dense 	= new int[capacity];
+		sparse 	= new int[capacity];
+	}
+
+	/**
+	 * Returns true if and only if the given value is in the set.
+	 *
+	 * @param value
+	 * @return
+	 */
+	final boolean contains( int value ) {
+		int position = sparse[value];
+		return position < size && dense[position] == value;
+	}
+
+	/**
+	 * Add the given value to the set.
+	 *
+	 * @param value
+	 * @return true if the value was not already in the set
+	 */
+	final boolean add( int value ) {
+		if ( contains(value) ) {
+			return false;
+		}
+		dense[size] = value;
+		sparse[value] = size++;
+		return true;
+	}
+
+	/**
+	 * Add all of the given values to the set.
+	 *
+	 * @param values
+	 */
+	final void addAll( int[] values ) {
+		for ( int value : values ) {
+			add(value);
+		}
+	}
+
+	/**
+	 * Returns the member at the given position.
+	 *
+	 * @param position
+	 * @return
+	 */
+	final int get( int position ) {
+		return dense[position];
+	}
+
+	/**
+	 * Returns the number of members.
+	 *
+	 * @return
+	 */
+	final int size() {
+		return size;
+	}
+
+	/**
+	 * Remove every member.
+	 */
+	final void clear() {
+		size = 0;
+	}
+
+}
@@ -1,30 +1,68 @@
 package org.brukhman.jfa.automaton;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * An NFA state, which can be labeled with an integer.
+ * <p>
+ * States made by {@link #next()} are named from a process-wide count.  States
+ * made by {@link Table#newState()} belong to their table, which names them
+ * densely from <code>0</code>; they are only equal to states of the same table.
  * 
  * @author jbrukh
  *
  */
 public class State extends GenericState<Integer>{
 	
-	private static int stateCount = 0;
+	private final static AtomicInteger stateCount = new AtomicInteger();
+	
+	/** The table that named this state, if any. */
+	private final Table owner;
 	
 	/**
 	 * Create a new instance.
 	 * 
+	 * @param owner
 	 * @param name
 	 */
-	private State( Integer name ) {
+	private State( Table owner, Integer name ) {
 		super(name);
+		this.owner = owner;
 	}
 	
 	/**
-	 * Create a new state from an internal count.
+	 * Create a new state from an internal count.  This is safe to call
+	 * from several threads.
 	 * 
 	 * @return
 	 */
 	public final static State next() {
-		return new State(++stateCount);
+		return new State(null, stateCount.incrementAndGet());
+	}
+	
+	/**
+	 * Create a new state that belongs to the given table.
+	 * 
+	 * @param owner
+	 * @param name
+	 * @return
+	 */
+	final static State create( Table owner, int name ) {
+		return new State(owner, name);
+	}
+	
+	/**
+	 * Returns true if and only if this state may be added to the given table.
+	 * 
+	 * @param table
+	 * @return
+	 */
+	final boolean belongsTo( Table table ) {
+		return owner == null || owner == table;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return super.equals(obj) && owner == ((State)obj).owner;
 	}
 }
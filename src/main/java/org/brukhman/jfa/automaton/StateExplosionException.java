@@ -0,0 +1,21 @@
+package org.brukhman.jfa.automaton;
+
+/**
+ * Thrown when a construction would create more states than it is allowed to.
+ * 
+ * @author jbrukh
+ *
+ */
+public class StateExplosionException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param limit the number of states that was exceeded
+	 */
+	public StateExplosionException( int limit ) {
+		super("The construction exceeded the limit of "+limit+" states.");
+	}
+}
@@ -21,6 +21,15 @@ public interface Table {
 	 * @return
 	 */
 	public abstract void addStates(State... state);
+
+	/**
+	 * Creates a new state and adds it to the table.  The states created by a
+	 * table have the dense names <code>0..n-1</code>, in order of creation, and
+	 * are never equal to states of other tables.
+	 * 
+	 * @return
+	 */
+	public abstract State newState();
 	
 	/**
 	 * Get the set of states of the table.
@@ -44,6 +53,18 @@ public interface Table {
 	 * @param to
 	 */
 	public void addTransition( State from, Character symbol, State to );
+
+	/**
+	 * Add a transition on every code point in <code>first..last</code>, which
+	 * may include supplementary code points but not epsilon.  Range transitions
+	 * are not included in {@link #getSymbols()}.
+	 * 
+	 * @param from
+	 * @param first
+	 * @param last
+	 * @param to
+	 */
+	public void addTransition( State from, int first, int last, State to );
 	
 	/**
 	 * Return a traverser for this table.
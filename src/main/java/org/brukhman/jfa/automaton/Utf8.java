@@ -0,0 +1,282 @@
+package org.brukhman.jfa.automaton;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Transforms automata over characters into equivalent automata over the
+ * bytes of the UTF-8 encoding, so that encoded input can be matched without
+ * decoding it.  Byte <code>b</code> is the symbol <code>(char)b</code>, as
+ * read by {@link CompiledDFA#compute(java.nio.ByteBuffer)} and
+ * {@link FileScanner}.
+ * <p>
+ * Character automata read UTF-16, so a supplementary code point is a path of
+ * a high and a low surrogate; such paths are recombined into code points
+ * before encoding, and unpaired surrogates, which have no UTF-8 encoding,
+ * are dropped.  Every range of code points with the same transition is then
+ * split into ranges whose encodings are products of byte ranges, as in
+ * Russ Cox's RE2, and each becomes a path of byte ranges.  The intermediate
+ * states of paths with the same tail and target are shared.
+ * <p>
+ * The byte automata only accept well-formed UTF-8: overlong forms, encoded
+ * surrogates and stray continuation bytes are rejected.
+ *
+ * @author jbrukh
+ *
+ */
+public final class Utf8 {
+
+	private final static int MIN_HIGH_SURROGATE	= 0xD800;
+	private final static int MIN_LOW_SURROGATE	= 0xDC00;
+	private final static int MAX_LOW_SURROGATE	= 0xDFFF;
+
+	/** The largest code point of each encoded length but the last. */
+	private final static int[] MAX_CODE_POINTS = { 0x7F, 0x7FF, 0xFFFF };
+
+	/**
+	 * Use the static methods.
+	 */
+	private Utf8() {
+	}
+
+	/**
+	 * Returns a nondeterministic table over bytes that accepts the UTF-8
+	 * encodings of the strings accepted by the given table.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static NFA encode( NondeterministicTable table ) {
+		IndexedNFA nfa = IndexedNFA.of(table);
+		NFA result = new NFA();
+		State[] states = new State[nfa.size()];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = result.newState();
+			if ( nfa.accepting[i] ) {
+				result.makeFinal(states[i]);
+			}
+		}
+		result.makeInitial(states[nfa.initial]);
+		for ( int member : nfa.closures[nfa.initial] ) {
+			if ( member != nfa.initial ) {
+				result.addTransition(states[nfa.initial], EPSILON, states[member]);
+			}
+		}
+
+		char[][] ranges = new char[nfa.classCount][];
+		for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+			ranges[symbolClass] = nfa.alphabet.getRanges(symbolClass);
+		}
+		Map<List<Object>,State> tails = Maps.newHashMap();
+		for ( int from = 0; from < states.length; from++ ) {
+			for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+				char[] classRanges = ranges[symbolClass];
+				for ( int to : nfa.step(from, symbolClass) ) {
+					for ( int i = 0; i < classRanges.length; i += 2 ) {
+						int first = classRanges[i], last = classRanges[i+1];
+						// the part before the surrogates, and the part after
+						encode(result, states[from], first, Math.min(last, MIN_HIGH_SURROGATE-1), states[to], tails);
+						encode(result, states[from], Math.max(first, MAX_LOW_SURROGATE+1), last, states[to], tails);
+						// the high surrogates, each followed by low surrogates
+						int firstHigh = Math.max(first, MIN_HIGH_SURROGATE);
+						int lastHigh = Math.min(last, MIN_LOW_SURROGATE-1);
+						if ( firstHigh <= lastHigh ) {
+							encodeSurrogates(nfa, ranges, result, states, from, firstHigh, lastHigh, to, tails);
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a nondeterministic table over bytes that accepts the UTF-8
+	 * encodings of the strings accepted by the given table.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static NFA encode( DeterministicTable table ) {
+		return encode( table.compile() );
+	}
+
+	/**
+	 * Returns a nondeterministic table over bytes that accepts the UTF-8
+	 * encodings of the strings accepted by the given automaton.
+	 *
+	 * @param dfa
+	 * @return
+	 */
+	public final static NFA encode( CompiledDFA dfa ) {
+		checkNotNull(dfa, "Provide an automaton.");
+		NFA table = new NFA();
+		State[] states = new State[dfa.getStateCount()];
+		for ( int state = 0; state < states.length; state++ ) {
+			states[state] = table.newState();
+			if ( dfa.isAccepting(state) ) {
+				table.makeFinal(states[state]);
+			}
+		}
+		table.makeInitial(states[dfa.getInitial()]);
+		Alphabet alphabet = dfa.getAlphabet();
+		int[] transitions = dfa.transitions();
+		for ( int symbolClass = Alphabet.OTHER; symbolClass < alphabet.getClassCount(); symbolClass++ ) {
+			char[] ranges = alphabet.getSymbolRanges(symbolClass);
+			for ( int state = 1; state < states.length; state++ ) {
+				int to = transitions[state*alphabet.getClassCount()+symbolClass];
+				if ( to != CompiledDFA.DEAD ) {
+					table.addTransitions(states[state], ranges, states[to]);
+				}
+			}
+		}
+		return encode(table);
+	}
+
+	/**
+	 * Returns the minimal compiled automaton over bytes that accepts the
+	 * UTF-8 encodings of the strings accepted by the given table.
+	 *
+	 * @param table
+	 * @return
+	 * @throws StateExplosionException if determinization constructs too many states
+	 */
+	public final static CompiledDFA compile( NondeterministicTable table ) {
+		return encode(table).determinize().compile().minimize();
+	}
+
+	/**
+	 * Returns the minimal compiled automaton over bytes that accepts the
+	 * UTF-8 encodings of the strings accepted by the given table.
+	 *
+	 * @param table
+	 * @return
+	 */
+	public final static CompiledDFA compile( DeterministicTable table ) {
+		return encode(table).determinize().compile().minimize();
+	}
+
+	/**
+	 * Add the code points made of a high surrogate in <code>firstHigh..lastHigh</code>,
+	 * read from <code>from</code> to <code>middle</code>, and a low surrogate
+	 * read from <code>middle</code>.
+	 */
+	private final static void encodeSurrogates( IndexedNFA nfa, char[][] ranges, NFA result, State[] states,
+			int from, int firstHigh, int lastHigh, int middle, Map<List<Object>,State> tails ) {
+		for ( int symbolClass = 1; symbolClass < nfa.classCount; symbolClass++ ) {
+			char[] classRanges = ranges[symbolClass];
+			for ( int to : nfa.step(middle, symbolClass) ) {
+				for ( int i = 0; i < classRanges.length; i += 2 ) {
+					int firstLow = Math.max(classRanges[i], MIN_LOW_SURROGATE);
+					int lastLow = Math.min(classRanges[i+1], MAX_LOW_SURROGATE);
+					if ( firstLow > lastLow ) {
+						continue;
+					}
+					if ( firstLow == MIN_LOW_SURROGATE && lastLow == MAX_LOW_SURROGATE ) {
+						// every low surrogate, so the code points are contiguous
+						encode(result, states[from], Character.toCodePoint((char)firstHigh, (char)firstLow),
+								Character.toCodePoint((char)lastHigh, (char)lastLow), states[to], tails);
+						continue;
+					}
+					for ( int high = firstHigh; high <= lastHigh; high++ ) {
+						encode(result, states[from], Character.toCodePoint((char)high, (char)firstLow),
+								Character.toCodePoint((char)high, (char)lastLow), states[to], tails);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add paths of byte ranges from <code>from</code> to <code>to</code> that
+	 * read the encodings of the code points in <code>first..last</code>.
+	 *
+	 * @param result
+	 * @param from
+	 * @param first
+	 * @param last
+	 * @param to
+	 * @param tails the intermediate states, by target and remaining byte ranges
+	 */
+	private final static void encode( NFA result, State from, int first, int last, State to,
+			Map<List<Object>,State> tails ) {
+		if ( first > last ) {
+			return;
+		}
+		// split into ranges of a single encoded length
+		for ( int max : MAX_CODE_POINTS ) {
+			if ( first <= max && max < last ) {
+				encode(result, from, first, max, to, tails);
+				encode(result, from, max+1, last, to, tails);
+				return;
+			}
+		}
+		// split until every continuation byte covers either one value or all
+		// values under a shared prefix
+		for ( int i = 1; i < 4; i++ ) {
+			int mask = (1 << 6*i) - 1;
+			if ( (first & ~mask) != (last & ~mask) ) {
+				if ( (first & mask) != 0 ) {
+					encode(result, from, first, first | mask, to, tails);
+					encode(result, from, (first | mask) + 1, last, to, tails);
+					return;
+				}
+				if ( (last & mask) != mask ) {
+					encode(result, from, first, (last & ~mask) - 1, to, tails);
+					encode(result, from, last & ~mask, last, to, tails);
+					return;
+				}
+			}
+		}
+
+		char[] firstBytes = bytes(first), lastBytes = bytes(last);
+		State next = to;
+		for ( int i = firstBytes.length-1; i > 0; i-- ) {
+			List<Object> key = Arrays.<Object>asList(to,
+					new String(firstBytes, i, firstBytes.length-i), new String(lastBytes, i, lastBytes.length-i));
+			State tail = tails.get(key);
+			if ( tail == null ) {
+				tail = result.newState();
+				result.addTransitions(tail, new char[] { firstBytes[i], lastBytes[i] }, next);
+				tails.put(key, tail);
+			}
+			next = tail;
+		}
+		result.addTransitions(from, new char[] { firstBytes[0], lastBytes[0] }, next);
+	}
+
+	/**
+	 * Returns the UTF-8 encoding of the given code point, one byte per char.
+	 *
+	 * @param codePoint
+	 * @return
+	 */
+	private final static char[] bytes( int codePoint ) {
+		if ( codePoint < 0x80 ) {
+			return new char[] { (char)codePoint };
+		}
+		if ( codePoint < 0x800 ) {
+			return new char[] {
+					(char)(0xC0 | codePoint >> 6),
+					(char)(0x80 | codePoint & 0x3F) };
+		}
+		if ( codePoint < 0x10000 ) {
+			return new char[] {
+					(char)(0xE0 | codePoint >> 12),
+					(char)(0x80 | codePoint >> 6 & 0x3F),
+					(char)(0x80 | codePoint & 0x3F) };
+		}
+		return new char[] {
+				(char)(0xF0 | codePoint >> 18),
+				(char)(0x80 | codePoint >> 12 & 0x3F),
+				(char)(0x80 | codePoint >> 6 & 0x3F),
+				(char)(0x80 | codePoint & 0x3F) };
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.brukhman.jfa.regex;
+
+import java.util.Arrays;
+
+/**
+ * A set of code points, kept as a sorted list of disjoint ranges.  Code
+ * point <code>0</code>, which is epsilon, is never a member.
+ *
+ * @author jbrukh
+ *
+ */
+final class CharClass {
+
+	// FIELDS //
+
+	/** The smallest code point that can be matched. */
+	final static int MIN_CODE_POINT = 1;
+
+	/** First and last code points of the ranges, in pairs. */
+	private int[] ranges = new int[0];
+
+	/**
+	 * Add the code points in <code>first..last</code>.
+	 *
+	 * @param first
+	 * @param last
+	 * @return this class
+	 */
+	final CharClass add( int first, int last ) {
+		first = Math.max(first, MIN_CODE_POINT);
+		if ( first > last ) {
+			return this;
+		}
+		int[] result = new int[ranges.length+2];
+		int size = 0;
+		boolean added = false;
+		for ( int i = 0; i < ranges.length; i += 2 ) {
+			int f = ranges[i], l = ranges[i+1];
+			if ( l+1 < first ) {
+				result[size++] = f;
+				result[size++] = l;
+			} else if ( last+1 < f ) {
+				if ( !added ) {
+					result[size++] = first;
+					result[size++] = last;
+					added = true;
+				}
+				result[size++] = f;
+				result[size++] = l;
+			} else {
+				first = Math.min(first, f);
+				last = Math.max(last, l);
+			}
+		}
+		if ( !added ) {
+			result[size++] = first;
+			result[size++] = last;
+		}
+		ranges = Arrays.copyOf(result, size);
+		return this;
+	}
+
+	/**
+	 * Add every member of the given class.
+	 *
+	 * @param other
+	 * @return this class
+	 */
+	final CharClass addAll( CharClass other ) {
+		for ( int i = 0; i < other.ranges.length; i += 2 ) {
+			add(other.ranges[i], other.ranges[i+1]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the class of the code points that are not in this one.
+	 *
+	 * @return
+	 */
+	final CharClass negate() {
+		CharClass result = new CharClass();
+		int next = MIN_CODE_POINT;
+		for ( int i = 0; i < ranges.length; i += 2 ) {
+			result.add(next, ranges[i]-1);
+			next = ranges[i+1]+1;
+		}
+		result.add(next, Character.MAX_CODE_POINT);
+		return result;
+	}
+
+	/**
+	 * Returns the ranges as pairs of first and last code points.
+	 *
+	 * @return
+	 */
+	final int[] getRanges() {
+		return ranges;
+	}
+
+}
@@ -0,0 +1,141 @@
+package org.brukhman.jfa.regex;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.brukhman.jfa.automaton.Automaton;
+import org.brukhman.jfa.automaton.NFA;
+import org.brukhman.jfa.automaton.StateExplosionException;
+
+/**
+ * A thread-safe cache of compiled patterns, keyed by pattern string, that
+ * holds at most a fixed number of patterns and evicts the least recently
+ * used one first.
+ * <p>
+ * A pattern is compiled by {@link RegexParser}, determinized, minimized and
+ * compiled into a {@link org.brukhman.jfa.automaton.CompiledDFA}.  If
+ * determinization would construct more than a given number of states, the
+ * frozen {@link NFA} is cached instead.  Either way the cached automaton is
+ * immutable and may be used by any number of threads.
+ * <p>
+ * Patterns are compiled outside the lock, so a slow compilation does not
+ * block lookups of other patterns; two threads that miss on the same
+ * pattern at once may both compile it.
+ *
+ * @author jbrukh
+ *
+ */
+public final class PatternCache {
+
+	// FIELDS //
+
+	/** The default number of cached patterns. */
+	public final static int DEFAULT_MAX_SIZE = 256;
+
+	/** The default limit on the states of a determinized pattern. */
+	public final static int DEFAULT_MAX_STATES = 10000;
+
+	private final int						maxStates;
+	private final Map<String,Automaton>		cache;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param maxSize
+	 * @param maxStates
+	 */
+	private PatternCache( final int maxSize, int maxStates ) {
+		checkArgument(maxSize > 0, "The cache must hold at least one pattern.");
+		checkArgument(maxStates > 0, "The state limit must be positive.");
+		this.maxStates 	= maxStates;
+		this.cache 		= new LinkedHashMap<String,Automaton>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String,Automaton> eldest ) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Create a new instance with the default limits.
+	 *
+	 * @return
+	 */
+	public final static PatternCache create() {
+		return new PatternCache(DEFAULT_MAX_SIZE, DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param maxSize the largest number of cached patterns
+	 * @param maxStates the largest number of states of a determinized pattern
+	 * @return
+	 */
+	public final static PatternCache create( int maxSize, int maxStates ) {
+		return new PatternCache(maxSize, maxStates);
+	}
+
+	/**
+	 * Returns the compiled automaton for the given pattern, compiling and
+	 * caching it if necessary.
+	 *
+	 * @param pattern
+	 * @return
+	 * @throws java.util.regex.PatternSyntaxException if the pattern is malformed
+	 */
+	public final Automaton get( String pattern ) {
+		checkNotNull(pattern, "Provide a pattern.");
+		synchronized ( cache ) {
+			Automaton automaton = cache.get(pattern);
+			if ( automaton != null ) {
+				return automaton;
+			}
+		}
+		Automaton automaton = compile(pattern);
+		synchronized ( cache ) {
+			cache.put(pattern, automaton);
+		}
+		return automaton;
+	}
+
+	/**
+	 * Returns the number of cached patterns.
+	 *
+	 * @return
+	 */
+	public final int size() {
+		synchronized ( cache ) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Drop every cached pattern.
+	 */
+	public final void clear() {
+		synchronized ( cache ) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Compile the given pattern.
+	 *
+	 * @param pattern
+	 * @return
+	 */
+	private final Automaton compile( String pattern ) {
+		NFA nfa = RegexParser.parse(pattern);
+		try {
+			return nfa.determinize(maxStates).compile().minimize();
+		} catch ( StateExplosionException e ) {
+			return nfa.freeze();
+		}
+	}
+
+}
@@ -0,0 +1,355 @@
+package org.brukhman.jfa.regex;
+
+import static com.google.common.base.Preconditions.*;
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.brukhman.jfa.automaton.NFA;
+import org.brukhman.jfa.automaton.State;
+
+/**
+ * Compiles regular expressions into nondeterministic automata by Thompson's
+ * construction.
+ * <p>
+ * The syntax is a subset of that of {@link java.util.regex.Pattern}:
+ * <ul>
+ * <li>concatenation, alternation <code>a|b</code> and grouping <code>(a)</code>;</li>
+ * <li>the repetitions <code>a*</code>, <code>a+</code> and <code>a?</code>;</li>
+ * <li><code>.</code>, which matches any code point;</li>
+ * <li>character classes such as <code>[a-z_]</code> and <code>[^0-9]</code>;</li>
+ * <li>the escapes <code>\d \w \s \D \W \S \t \n \r \f</code>, <code>&#92;uXXXX</code>,
+ * and a backslash before any other character to match it literally.</li>
+ * </ul>
+ * Patterns match whole inputs, and work on code points, so supplementary
+ * characters are single symbols.  Each piece of the pattern becomes a
+ * fragment with one entry and one exit state, joined by epsilon transitions;
+ * the result has at most two states per symbol and operator.
+ *
+ * @author jbrukh
+ *
+ */
+public final class RegexParser {
+
+	// FIELDS //
+
+	private final static CharClass DIGITS 	= new CharClass().add('0', '9');
+	private final static CharClass WORDS 	= new CharClass().add('a', 'z').add('A', 'Z').add('0', '9').add('_', '_');
+	private final static CharClass SPACES 	= new CharClass().add(' ', ' ').add('\t', '\r');
+
+	private final String	pattern;
+	private final NFA		nfa;
+	private int				position;
+
+	/**
+	 * A piece of the automaton under construction, with one entry and one exit.
+	 */
+	private final static class Fragment {
+
+		final State start;
+		final State end;
+
+		Fragment( State start, State end ) {
+			this.start 	= start;
+			this.end 	= end;
+		}
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param pattern
+	 */
+	private RegexParser( String pattern ) {
+		this.pattern 	= pattern;
+		this.nfa 		= new NFA();
+	}
+
+	/**
+	 * Returns an automaton that accepts exactly the strings that match the
+	 * given pattern.
+	 *
+	 * @param pattern
+	 * @return
+	 * @throws PatternSyntaxException if the pattern is malformed
+	 */
+	public final static NFA parse( String pattern ) {
+		checkNotNull(pattern, "Provide a pattern.");
+		RegexParser parser = new RegexParser(pattern);
+		Fragment fragment = parser.alternation();
+		if ( parser.position < pattern.length() ) {
+			throw parser.error("Unmatched closing ')'");
+		}
+		parser.nfa.makeInitial(fragment.start);
+		parser.nfa.makeFinal(fragment.end);
+		return parser.nfa;
+	}
+
+	/**
+	 * alternation := concatenation ('|' concatenation)*
+	 */
+	private final Fragment alternation() {
+		Fragment fragment = concatenation();
+		if ( !peek('|') ) {
+			return fragment;
+		}
+		State start = nfa.newState(), end = nfa.newState();
+		nfa.addTransition(start, EPSILON, fragment.start);
+		nfa.addTransition(fragment.end, EPSILON, end);
+		while ( peek('|') ) {
+			position++;
+			Fragment alternative = concatenation();
+			nfa.addTransition(start, EPSILON, alternative.start);
+			nfa.addTransition(alternative.end, EPSILON, end);
+		}
+		return new Fragment(start, end);
+	}
+
+	/**
+	 * concatenation := repetition*
+	 */
+	private final Fragment concatenation() {
+		State start = nfa.newState();
+		State end = start;
+		while ( position < pattern.length() && !peek('|') && !peek(')') ) {
+			Fragment fragment = repetition();
+			nfa.addTransition(end, EPSILON, fragment.start);
+			end = fragment.end;
+		}
+		return new Fragment(start, end);
+	}
+
+	/**
+	 * repetition := atom ('*' | '+' | '?')*
+	 */
+	private final Fragment repetition() {
+		Fragment fragment = atom();
+		while ( peek('*') || peek('+') || peek('?') ) {
+			char operator = pattern.charAt(position++);
+			State start = nfa.newState(), end = nfa.newState();
+			nfa.addTransition(start, EPSILON, fragment.start);
+			nfa.addTransition(fragment.end, EPSILON, end);
+			if ( operator != '+' ) {
+				nfa.addTransition(start, EPSILON, end);
+			}
+			if ( operator != '?' ) {
+				nfa.addTransition(fragment.end, EPSILON, fragment.start);
+			}
+			fragment = new Fragment(start, end);
+		}
+		return fragment;
+	}
+
+	/**
+	 * atom := '(' alternation ')' | '[' class ']' | '.' | escape | literal
+	 */
+	private final Fragment atom() {
+		int codePoint = pattern.codePointAt(position);
+		switch ( codePoint ) {
+		case '(':
+			position++;
+			Fragment group = alternation();
+			if ( !peek(')') ) {
+				throw error("Unclosed group");
+			}
+			position++;
+			return group;
+		case '[':
+			position++;
+			return symbols( characterClass() );
+		case '.':
+			position++;
+			return symbols( new CharClass().negate() );
+		case '*': case '+': case '?':
+			throw error("Dangling meta character '" + (char)codePoint + "'");
+		case '\\':
+			position++;
+			CharClass escaped = predefined();
+			return symbols( escaped != null ? escaped : single(escape()) );
+		default:
+			position += Character.charCount(codePoint);
+			return symbols( single(codePoint) );
+		}
+	}
+
+	/**
+	 * Parses the inside of a character class, after the opening bracket.
+	 *
+	 * @return
+	 */
+	private final CharClass characterClass() {
+		boolean negated = peek('^');
+		if ( negated ) {
+			position++;
+		}
+		CharClass members = new CharClass();
+		boolean first = true;
+		while ( first || !peek(']') ) {
+			if ( position >= pattern.length() ) {
+				throw error("Unclosed character class");
+			}
+			first = false;
+			int low;
+			if ( peek('\\') ) {
+				position++;
+				CharClass escaped = predefined();
+				if ( escaped != null ) {
+					members.addAll(escaped);
+					continue;
+				}
+				low = escape();
+			} else {
+				low = next();
+			}
+			int high = low;
+			if ( peek('-') && position+1 < pattern.length() && pattern.charAt(position+1) != ']' ) {
+				position++;
+				if ( peek('\\') ) {
+					position++;
+					high = escape();
+				} else {
+					high = next();
+				}
+				if ( high < low ) {
+					throw error("Illegal character range");
+				}
+			}
+			checkSymbol(low);
+			members.add(low, high);
+		}
+		position++;
+		return negated ? members.negate() : members;
+	}
+
+	/**
+	 * Returns the class of a predefined escape such as <code>\d</code>, after
+	 * the backslash, or <code>null</code> if the escape is not one.
+	 *
+	 * @return
+	 */
+	private final CharClass predefined() {
+		if ( position >= pattern.length() ) {
+			return null;
+		}
+		CharClass result;
+		switch ( pattern.charAt(position) ) {
+		case 'd': result = DIGITS; break;
+		case 'w': result = WORDS; break;
+		case 's': result = SPACES; break;
+		case 'D': result = DIGITS.negate(); break;
+		case 'W': result = WORDS.negate(); break;
+		case 'S': result = SPACES.negate(); break;
+		default: return null;
+		}
+		position++;
+		return result;
+	}
+
+	/**
+	 * Returns the code point of a single-character escape, after the backslash.
+	 *
+	 * @return
+	 */
+	private final int escape() {
+		if ( position >= pattern.length() ) {
+			throw error("Unexpected internal error");
+		}
+		int codePoint = next();
+		switch ( codePoint ) {
+		case 't': return '\t';
+		case 'n': return '\n';
+		case 'r': return '\r';
+		case 'f': return '\f';
+		case 'u':
+			if ( position+4 > pattern.length() ) {
+				throw error("Illegal Unicode escape sequence");
+			}
+			try {
+				codePoint = Integer.parseInt(pattern.substring(position, position+4), 16);
+			} catch ( NumberFormatException e ) {
+				throw error("Illegal Unicode escape sequence");
+			}
+			position += 4;
+			checkSymbol(codePoint);
+			return codePoint;
+		default:
+			if ( Character.isLetterOrDigit(codePoint) ) {
+				throw error("Illegal/unsupported escape sequence");
+			}
+			return codePoint;
+		}
+	}
+
+	/**
+	 * Returns the class of just the given code point.
+	 *
+	 * @param codePoint
+	 * @return
+	 */
+	private final CharClass single( int codePoint ) {
+		checkSymbol(codePoint);
+		return new CharClass().add(codePoint, codePoint);
+	}
+
+	/**
+	 * Returns a fragment that reads one code point of the given class.
+	 *
+	 * @param symbols
+	 * @return
+	 */
+	private final Fragment symbols( CharClass symbols ) {
+		State start = nfa.newState(), end = nfa.newState();
+		int[] ranges = symbols.getRanges();
+		for ( int i = 0; i < ranges.length; i += 2 ) {
+			if ( ranges[i] == ranges[i+1] && ranges[i] <= Character.MAX_VALUE ) {
+				nfa.addTransition(start, (char)ranges[i], end);
+			} else {
+				nfa.addTransition(start, ranges[i], ranges[i+1], end);
+			}
+		}
+		return new Fragment(start, end);
+	}
+
+	/**
+	 * Make sure the given code point can be matched.
+	 *
+	 * @param codePoint
+	 */
+	private final void checkSymbol( int codePoint ) {
+		if ( codePoint < CharClass.MIN_CODE_POINT ) {
+			throw error("The NUL character cannot be matched");
+		}
+	}
+
+	/**
+	 * Returns true if and only if the next character is the given one.
+	 *
+	 * @param c
+	 * @return
+	 */
+	private final boolean peek( char c ) {
+		return position < pattern.length() && pattern.charAt(position) == c;
+	}
+
+	/**
+	 * Returns the next code point and moves past it.
+	 *
+	 * @return
+	 */
+	private final int next() {
+		int codePoint = pattern.codePointAt(position);
+		position += Character.charCount(codePoint);
+		return codePoint;
+	}
+
+	/**
+	 * Returns an exception that describes an error at the current position.
+	 *
+	 * @param description
+	 * @return
+	 */
+	private final PatternSyntaxException error( String description ) {
+		return new PatternSyntaxException(description, pattern, Math.min(position, pattern.length()));
+	}
+
+}
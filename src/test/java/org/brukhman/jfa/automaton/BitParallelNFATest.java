@@ -0,0 +1,99 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+public class BitParallelNFATest extends TestCase {
+
+	/**
+	 * A random machine over a, b and c, with some epsilon transitions.
+	 */
+	private NFA random( Random random, int size ) {
+		State[] states = new State[size];
+		for ( int i = 0; i < size; i++ ) {
+			states[i] = State.next();
+		}
+		NFA nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		for ( int i = 0; i < size; i++ ) {
+			for ( char symbol : new char[] { 'a', 'b', 'c', EPSILON } ) {
+				int edges = random.nextInt(symbol == EPSILON ? 2 : 3);
+				for ( int j = 0; j < edges; j++ ) {
+					nfa.addTransition(states[i], symbol, states[random.nextInt(size)]);
+				}
+			}
+			if ( random.nextInt(4) == 0 ) {
+				nfa.makeFinal(states[i]);
+			}
+		}
+		return nfa;
+	}
+
+	public void testRandom() {
+		Random random = new Random(11);
+		for ( int trial = 0; trial < 30; trial++ ) {
+			NFA nfa = random(random, 2 + random.nextInt(12));
+			BitParallelNFA engine = BitParallelNFA.create(nfa);
+			assertNotNull( engine );
+
+			NFASimulator simulator = nfa.simulator();
+			for ( String input : DeterminizerTest.strings("abcd", 5) ) {
+				assertEquals( input, simulator.compute(input), engine.compute(input) );
+			}
+		}
+	}
+
+	public void testWideActiveSet() {
+		// accept (a|b)*a(a|b)^n with more than 64 positions
+		int n = 55;
+		State[] states = new State[n+2];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		NFA nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		nfa.addTransition(states[0], 'a', states[0]);
+		nfa.addTransition(states[0], 'b', states[0]);
+		nfa.addTransition(states[0], 'a', states[1]);
+		for ( int i = 1; i <= n; i++ ) {
+			nfa.addTransition(states[i], 'a', states[i+1]);
+			nfa.addTransition(states[i], 'b', states[i+1]);
+		}
+		nfa.makeFinal(states[n+1]);
+
+		BitParallelNFA engine = BitParallelNFA.create(nfa);
+		assertNotNull( engine );
+
+		Random random = new Random(3);
+		for ( int trial = 0; trial < 50; trial++ ) {
+			StringBuilder input = new StringBuilder();
+			for ( int i = random.nextInt(2*n); i >= 0; i-- ) {
+				input.append( random.nextBoolean() ? 'a' : 'b' );
+			}
+			int position = input.length()-n-1;
+			boolean expected = position >= 0 && input.charAt(position) == 'a';
+			assertEquals( expected, engine.compute(input.toString()) );
+		}
+	}
+
+	public void testTooLarge() {
+		State[] states = new State[BitParallelNFA.MAX_POSITIONS+1];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		NFA nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		for ( int i = 1; i < states.length; i++ ) {
+			nfa.addTransition(states[i-1], 'a', states[i]);
+		}
+		nfa.makeFinal(states[states.length-1]);
+
+		assertNull( BitParallelNFA.create(nfa) );
+		assertTrue( nfa.compute(new String(new char[states.length-1]).replace('\0', 'a')) );
+	}
+
+}
@@ -0,0 +1,196 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+
+public class CompiledDFATest extends TestCase {
+
+	private DeterministicTable table;
+	private State a,b,c;
+
+	public void setUp() {
+		a = State.next();
+		b = State.next();
+		c = State.next();
+
+		// accept (ab)*c
+		table = new DeterministicTable();
+		table.addStates(a,b,c);
+		table.makeInitial(a);
+		table.addTransition(a, 'a', b);
+		table.addTransition(b, 'b', a);
+		table.addTransition(a, 'c', c);
+		table.makeFinal(c);
+	}
+
+	public void testCompute() {
+		CompiledDFA dfa = table.compile();
+
+		assertEquals( 4, dfa.getStateCount() );
+		assertTrue( dfa.compute("c") );
+		assertTrue( dfa.compute("abc") );
+		assertTrue( dfa.compute("ababababc") );
+
+		assertFalse( dfa.compute("") );
+		assertFalse( dfa.compute("ab") );
+		assertFalse( dfa.compute("abac") );
+		assertFalse( dfa.compute("cc") );
+		assertFalse( dfa.compute("abxc") );
+	}
+
+	public void testDeadState() {
+		CompiledDFA dfa = table.compile();
+
+		int state = dfa.step(dfa.getInitial(), 'x');
+		assertEquals( CompiledDFA.DEAD, state );
+		assertEquals( CompiledDFA.DEAD, dfa.step(state, 'a') );
+		assertFalse( dfa.isAccepting(state) );
+	}
+
+	public void testSnapshot() {
+		CompiledDFA dfa = table.compile();
+		table.makeFinal(a);
+
+		assertFalse( dfa.compute("") );
+		assertTrue( table.compile().compute("") );
+	}
+
+	public void testSymbolClasses() {
+		// letters and digits behave alike everywhere, \u4e00 behaves like a letter
+		State start = State.next();
+		State word = State.next();
+		DeterministicTable identifiers = new DeterministicTable();
+		identifiers.addStates(start, word);
+		identifiers.makeInitial(start);
+		identifiers.makeFinal(word);
+		for ( char letter = 'a'; letter <= 'z'; letter++ ) {
+			identifiers.addTransition(start, letter, word);
+			identifiers.addTransition(word, letter, word);
+		}
+		identifiers.addTransition(start, '\u4e00', word);
+		identifiers.addTransition(word, '\u4e00', word);
+		for ( char digit = '0'; digit <= '9'; digit++ ) {
+			identifiers.addTransition(word, digit, word);
+		}
+
+		CompiledDFA dfa = identifiers.compile();
+		Alphabet alphabet = dfa.getAlphabet();
+		assertEquals( 3, alphabet.getClassCount() );
+		assertEquals( alphabet.classOf('a'), alphabet.classOf('q') );
+		assertEquals( alphabet.classOf('a'), alphabet.classOf('\u4e00') );
+		assertEquals( alphabet.classOf('0'), alphabet.classOf('9') );
+		assertEquals( Alphabet.OTHER, alphabet.classOf('A') );
+		assertEquals( Alphabet.OTHER, alphabet.classOf('\u4e01') );
+		assertEquals( Alphabet.OTHER, alphabet.classOf('\uffff') );
+
+		assertTrue( dfa.compute("abc123") );
+		assertTrue( dfa.compute("\u4e00z9") );
+		assertFalse( dfa.compute("1abc") );
+		assertFalse( dfa.compute("ab-c") );
+	}
+
+	public void testMergedClasses() {
+		// once the two states are merged, 'a' and 'b' are the same class
+		State x = State.next();
+		State y = State.next();
+		DeterministicTable alternating = new DeterministicTable();
+		alternating.addStates(x, y);
+		alternating.makeInitial(x);
+		alternating.makeFinal(x);
+		alternating.makeFinal(y);
+		alternating.addTransition(x, 'a', y);
+		alternating.addTransition(x, 'b', x);
+		alternating.addTransition(y, 'a', x);
+		alternating.addTransition(y, 'b', y);
+
+		CompiledDFA dfa = alternating.compile();
+		assertEquals( 3, dfa.getAlphabet().getClassCount() );
+		CompiledDFA minimal = dfa.minimize();
+		assertEquals( 2, minimal.getAlphabet().getClassCount() );
+		assertEquals( 2, minimal.getStateCount() );
+		assertTrue( minimal.compute("abba") );
+		assertFalse( minimal.compute("abca") );
+	}
+
+	public void testRanges() {
+		// accept identifiers of latin letters and emoji, as code points
+		State start = State.next();
+		State word = State.next();
+		NFA identifiers = new NFA();
+		identifiers.addStates(start, word);
+		identifiers.makeInitial(start);
+		identifiers.makeFinal(word);
+		identifiers.addTransition(start, 'a', 'z', word);
+		identifiers.addTransition(start, 'A', 'Z', word);
+		identifiers.addTransition(start, 0x1F600, 0x1F64F, word);
+		identifiers.addTransition(word, 'a', 'z', word);
+		identifiers.addTransition(word, '0', '9', word);
+		identifiers.addTransition(word, 0x1F600, 0x1F64F, word);
+
+		CompiledDFA dfa = identifiers.determinize().compile();
+		CompiledDFA minimal = dfa.minimize();
+		for ( Automaton automaton : new Automaton[] { identifiers, dfa, minimal, minimal.toTable().compile() } ) {
+			assertTrue( automaton.compute("Hello42") );
+			assertTrue( automaton.compute("\uD83D\uDE00") );
+			assertTrue( automaton.compute("x\uD83D\uDE4F9") );
+			assertFalse( automaton.compute("9lives") );
+			assertFalse( automaton.compute("x\uD83D\uDE50") );
+			assertFalse( automaton.compute("x\uD83D") );
+			assertFalse( automaton.compute("x\uDE00") );
+		}
+		// dead, start, word, and after a high surrogate
+		assertEquals( 4, minimal.getStateCount() );
+	}
+
+	public void testOverlappingRanges() {
+		// a later range only replaces the code points it covers
+		DeterministicTable table = new DeterministicTable();
+		State start = table.newState(), a = table.newState(), b = table.newState();
+		table.makeInitial(start);
+		table.makeFinal(b);
+		table.addTransition(start, 0x10000, 0x10FFFF, b);
+		table.addTransition(start, 0x1F600, 0x1F601, a);
+		table.addTransition(start, 'a', 'z', b);
+		table.addTransition(start, 'm', 'n', a);
+
+		CompiledDFA dfa = table.compile();
+		for ( int codePoint : new int[] { 0x10000, 0x1F5FF, 0x1F602, 0x1F800, 0x10FFFF, 'a', 'o' } ) {
+			assertTrue( Integer.toHexString(codePoint), dfa.compute(new String(Character.toChars(codePoint))) );
+		}
+		for ( int codePoint : new int[] { 0x1F600, 0x1F601, 'm', 'n' } ) {
+			assertFalse( Integer.toHexString(codePoint), dfa.compute(new String(Character.toChars(codePoint))) );
+		}
+	}
+
+	public void testComputeAll() throws InterruptedException {
+		CompiledDFA dfa = table.compile();
+		List<String> inputs = Lists.newArrayList();
+		BitSet expected = new BitSet();
+		for ( int i = 0; i < 5000; i++ ) {
+			StringBuilder input = new StringBuilder();
+			for ( int j = i % 7; j > 0; j-- ) {
+				input.append("ab");
+			}
+			input.append( i % 3 == 0 ? "c" : "" );
+			inputs.add(input.toString());
+			expected.set(i, i % 3 == 0);
+		}
+
+		assertEquals( expected, dfa.computeAll(inputs) );
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertEquals( expected, dfa.computeAll(inputs, executor) );
+			assertEquals( new BitSet(), dfa.computeAll(inputs.subList(1, 3), executor) );
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
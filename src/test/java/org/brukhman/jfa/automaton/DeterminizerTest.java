@@ -0,0 +1,109 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+
+public class DeterminizerTest extends TestCase {
+
+	private NFA nfa;
+
+	public void setUp() {
+		State s = State.next();
+		State a = State.next();
+		State b = State.next();
+		State e = State.next();
+		State d = State.next();
+		State o = State.next();
+		State h = State.next();
+
+		// accept (abe*|doh*)+
+		nfa = new NFA(s,a,b,e,d,o,h);
+		nfa.makeInitial(s);
+		nfa.addTransition(a, 'a', b);
+		nfa.addTransition(b, 'b', e);
+		nfa.addTransition(e, 'e', e);
+		nfa.addTransition(d, 'd', o);
+		nfa.addTransition(o, 'o', h);
+		nfa.addTransition(h, 'h', h);
+		nfa.makeFinal(e);
+		nfa.makeFinal(h);
+		nfa.addTransition(s, EPSILON, a);
+		nfa.addTransition(s, EPSILON, d);
+		nfa.addTransition(e, EPSILON, s);
+		nfa.addTransition(h, EPSILON, s);
+	}
+
+	/**
+	 * All strings over the given symbols up to the given length.
+	 */
+	static List<String> strings( String symbols, int maxLength ) {
+		List<String> result = Lists.newArrayList("");
+		int start = 0;
+		for ( int length = 1; length <= maxLength; length++ ) {
+			int end = result.size();
+			for ( int i = start; i < end; i++ ) {
+				for ( char symbol : symbols.toCharArray() ) {
+					result.add(result.get(i)+symbol);
+				}
+			}
+			start = end;
+		}
+		return result;
+	}
+
+	public void testEquivalence() {
+		CompiledDFA dfa = nfa.determinize().compile();
+		for ( String input : strings("abdehox", 5) ) {
+			assertEquals( input, nfa.compute(input), dfa.compute(input) );
+		}
+	}
+
+	public void testTrailingEpsilon() {
+		State x = State.next();
+		State y = State.next();
+		State z = State.next();
+		NFA machine = new NFA(x,y,z);
+		machine.makeInitial(x);
+		machine.addTransition(x, 'a', y);
+		machine.addTransition(y, EPSILON, z);
+		machine.makeFinal(z);
+
+		assertTrue( machine.compute("a") );
+		assertTrue( machine.determinize().compile().compute("a") );
+		assertFalse( machine.determinize().compile().compute("") );
+	}
+
+	public void testStateLimit() {
+		// accept (a|b)*a(a|b)^n, which needs 2^(n+1) deterministic states
+		int n = 8;
+		State[] states = new State[n+2];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		NFA machine = new NFA(states);
+		machine.makeInitial(states[0]);
+		machine.addTransition(states[0], 'a', states[0]);
+		machine.addTransition(states[0], 'b', states[0]);
+		machine.addTransition(states[0], 'a', states[1]);
+		for ( int i = 1; i <= n; i++ ) {
+			machine.addTransition(states[i], 'a', states[i+1]);
+			machine.addTransition(states[i], 'b', states[i+1]);
+		}
+		machine.makeFinal(states[n+1]);
+
+		assertEquals( 1 << (n+1), machine.determinize().getStates().size() );
+		try {
+			machine.determinize(100);
+			fail("Expected the state limit to be exceeded.");
+		} catch ( StateExplosionException e ) {
+			// expected
+		}
+	}
+
+}
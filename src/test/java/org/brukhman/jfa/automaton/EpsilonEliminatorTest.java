@@ -0,0 +1,69 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableSet;
+
+import junit.framework.TestCase;
+
+
+public class EpsilonEliminatorTest extends TestCase {
+
+	private NFA nfa;
+	private State s,a,b,c,d;
+
+	public void setUp() {
+		s = State.next();
+		a = State.next();
+		b = State.next();
+		c = State.next();
+		d = State.next();
+
+		// an epsilon cycle s -> a -> b -> s, with x(y)* loops through c
+		nfa = new NFA(s,a,b,c,d);
+		nfa.makeInitial(s);
+		nfa.addTransition(s, EPSILON, a);
+		nfa.addTransition(a, EPSILON, b);
+		nfa.addTransition(b, EPSILON, s);
+		nfa.addTransition(a, 'x', c);
+		nfa.addTransition(c, 'y', c);
+		nfa.addTransition(c, EPSILON, a);
+		nfa.addTransition(b, 'z', d);
+		nfa.makeFinal(d);
+	}
+
+	public void testClosures() {
+		int[][] closures = EpsilonEliminator.closures(new int[][] {
+				{ 1 }, { 2 }, { 0, 3 }, { }, { 3 }
+		});
+		assertTrue( Arrays.equals(new int[] { 0, 1, 2, 3 }, closures[0]) );
+		assertSame( closures[0], closures[1] );
+		assertSame( closures[0], closures[2] );
+		assertTrue( Arrays.equals(new int[] { 3 }, closures[3]) );
+		assertTrue( Arrays.equals(new int[] { 3, 4 }, closures[4]) );
+	}
+
+	public void testTraverserCycles() {
+		assertEquals( ImmutableSet.of(s,a,b), nfa.traverser().epsilonClosure(s) );
+		assertTrue( nfa.compute("z") );
+		assertTrue( nfa.compute("xyyz") );
+		assertFalse( nfa.compute("x") );
+	}
+
+	public void testEliminate() {
+		NFA eliminated = nfa.eliminateEpsilons();
+
+		assertFalse( eliminated.getSymbols().contains(EPSILON) );
+		assertTrue( eliminated.getStates().size() <= nfa.getStates().size() );
+		for ( String input : DeterminizerTest.strings("xyz", 6) ) {
+			assertEquals( input, nfa.compute(input), eliminated.compute(input) );
+		}
+
+		// the original table is untouched
+		assertEquals( ImmutableSet.of(d), nfa.getFinal() );
+		assertTrue( nfa.getSymbols().contains(EPSILON) );
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import junit.framework.TestCase;
+
+
+public class EquivalenceTest extends TestCase {
+
+	/**
+	 * Returns an automaton that accepts (a|b)*a(a|b){n}.
+	 *
+	 * @param n
+	 * @return
+	 */
+	private static NFA suffix( int n ) {
+		NFA nfa = new NFA();
+		State start = nfa.newState(), end = nfa.newState();
+		nfa.makeInitial(start);
+		nfa.addTransition(start, 'a', start);
+		nfa.addTransition(start, 'b', start);
+		nfa.addTransition(start, 'a', end);
+		for ( int i = 0; i < n; i++ ) {
+			State next = nfa.newState();
+			nfa.addTransition(end, 'a', next);
+			nfa.addTransition(end, 'b', next);
+			end = next;
+		}
+		nfa.makeFinal(end);
+		return nfa;
+	}
+
+	/**
+	 * Returns an automaton that accepts the strings of a's whose length is
+	 * a multiple of n, with its states numbered backwards if asked.
+	 *
+	 * @param n
+	 * @param backwards
+	 * @return
+	 */
+	private static CompiledDFA multiples( int n, boolean backwards ) {
+		DeterministicTable table = new DeterministicTable();
+		State[] states = new State[n];
+		for ( int i = 0; i < n; i++ ) {
+			states[backwards ? n-1-i : i] = table.newState();
+		}
+		for ( int i = 0; i < n; i++ ) {
+			table.addTransition(states[i], 'a', states[(i+1) % n]);
+		}
+		table.makeInitial(states[0]);
+		table.makeFinal(states[0]);
+		return table.compile();
+	}
+
+	public void testEquivalent() {
+		NFA nfa = suffix(3);
+		CompiledDFA dfa = nfa.determinize().compile();
+		assertTrue( Equivalence.equivalent(nfa, suffix(3)) );
+		assertTrue( Equivalence.equivalent(dfa, dfa.minimize()) );
+		assertTrue( Equivalence.equivalent(nfa, nfa.eliminateEpsilons()) );
+
+		// with an epsilon in the middle
+		NFA epsilons = suffix(3);
+		State middle = epsilons.newState(), initial = epsilons.newState();
+		epsilons.addTransition(initial, EPSILON, middle);
+		epsilons.addTransition(middle, EPSILON, epsilons.getInitial());
+		epsilons.makeInitial(initial);
+		assertTrue( Equivalence.equivalent(nfa, epsilons) );
+	}
+
+	public void testCounterexample() {
+		NFA three = suffix(3), two = suffix(2);
+		String counterexample = Equivalence.counterexample(three, two);
+		assertNotNull( counterexample );
+		assertTrue( three.compute(counterexample) != two.compute(counterexample) );
+
+		CompiledDFA first = three.determinize().compile(), second = two.determinize().compile();
+		assertFalse( Equivalence.equivalent(first, second) );
+		counterexample = Equivalence.counterexample(first, second);
+		assertTrue( first.compute(counterexample) != second.compute(counterexample) );
+	}
+
+	public void testInclusion() {
+		CompiledDFA two = multiples(2, false), four = multiples(4, true);
+		assertTrue( Equivalence.isIncluded(four, two) );
+		assertFalse( Equivalence.isIncluded(two, four) );
+		assertNull( Equivalence.inclusionCounterexample(four, two) );
+		assertEquals( "aa", Equivalence.inclusionCounterexample(two, four) );
+
+		assertTrue( Equivalence.isIncluded(suffix(3), suffix(3)) );
+		String counterexample = Equivalence.inclusionCounterexample(suffix(3), suffix(2));
+		assertTrue( suffix(3).compute(counterexample) );
+		assertFalse( suffix(2).compute(counterexample) );
+	}
+
+	public void testEmptyAndUniversal() {
+		CompiledDFA dfa = suffix(2).determinize().compile();
+		assertFalse( Equivalence.isEmpty(dfa) );
+		assertFalse( Equivalence.isUniversal(dfa) );
+		assertFalse( Equivalence.isEmpty(suffix(2)) );
+		assertFalse( Equivalence.isUniversal(suffix(2)) );
+
+		CompiledDFA nothing = dfa.difference(dfa).compile();
+		assertTrue( Equivalence.isEmpty(nothing) );
+		assertFalse( Equivalence.isUniversal(nothing) );
+		assertTrue( Equivalence.isUniversal(nothing.complement()) );
+		assertFalse( Equivalence.isEmpty(nothing.complement()) );
+
+		// the final state is unreachable
+		NFA unreachable = new NFA();
+		State start = unreachable.newState(), end = unreachable.newState();
+		unreachable.makeInitial(start);
+		unreachable.makeFinal(end);
+		unreachable.addTransition(start, 'a', start);
+		assertTrue( Equivalence.isEmpty(unreachable) );
+	}
+
+	public void testLarge() {
+		int n = 100000;
+		assertTrue( Equivalence.equivalent(multiples(n, false), multiples(n, true)) );
+		String counterexample = Equivalence.counterexample(multiples(n, false), multiples(2*n, true));
+		assertEquals( n, counterexample.length() );
+	}
+
+}
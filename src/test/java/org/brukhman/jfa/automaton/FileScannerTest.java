@@ -0,0 +1,76 @@
+package org.brukhman.jfa.automaton;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+
+public class FileScannerTest extends TestCase {
+
+	private CompiledDFA dfa;
+	private File file;
+
+	public void setUp() throws IOException {
+		// accept lines of digits, each ending in a newline
+		State line = State.next();
+		State digits = State.next();
+		DeterministicTable table = new DeterministicTable();
+		table.addStates(line, digits);
+		table.makeInitial(line);
+		table.makeFinal(line);
+		table.addTransition(line, '0', '9', digits);
+		table.addTransition(digits, '0', '9', digits);
+		table.addTransition(digits, '\n', line);
+		dfa = table.compile();
+
+		file = File.createTempFile("scan", ".txt");
+		file.deleteOnExit();
+	}
+
+	public void tearDown() {
+		file.delete();
+	}
+
+	private void write( String contents ) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(contents.getBytes("ISO-8859-1"));
+		} finally {
+			output.close();
+		}
+	}
+
+	public void testMatches() throws IOException {
+		StringBuilder contents = new StringBuilder();
+		for ( int i = 0; i < 1000; i++ ) {
+			contents.append(i).append('\n');
+		}
+		write(contents.toString());
+		assertTrue( FileScanner.matches(dfa, file) );
+		assertTrue( FileScanner.matches(dfa, file, 7) );
+
+		write(contents.append("12x\n").toString());
+		assertFalse( FileScanner.matches(dfa, file) );
+		assertFalse( FileScanner.matches(dfa, file, 7) );
+
+		write("");
+		assertTrue( FileScanner.matches(dfa, file) );
+	}
+
+	public void testHighBytes() throws IOException {
+		State s = State.next();
+		DeterministicTable table = new DeterministicTable();
+		table.addStates(s);
+		table.makeInitial(s);
+		table.makeFinal(s);
+		table.addTransition(s, 0x80, 0xFF, s);
+
+		write("\u0080\u00ff\u00e9");
+		assertTrue( FileScanner.matches(table.compile(), file, 2) );
+		write("\u00e9a");
+		assertFalse( FileScanner.matches(table.compile(), file, 2) );
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import junit.framework.TestCase;
+
+
+public class LazyDFATest extends TestCase {
+
+	private NFA nfa;
+
+	public void setUp() {
+		// accept (a|b)*a(a|b)(a|b)(a|b)
+		State[] states = new State[5];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		nfa.addTransition(states[0], 'a', states[0]);
+		nfa.addTransition(states[0], 'b', states[0]);
+		nfa.addTransition(states[0], 'a', states[1]);
+		for ( int i = 1; i < 4; i++ ) {
+			nfa.addTransition(states[i], 'a', states[i+1]);
+			nfa.addTransition(states[i], 'b', states[i+1]);
+		}
+		nfa.makeFinal(states[4]);
+	}
+
+	public void testCompute() {
+		LazyDFA dfa = nfa.lazy();
+		for ( String input : DeterminizerTest.strings("abc", 7) ) {
+			assertEquals( input, nfa.compute(input), dfa.compute(input) );
+		}
+		assertEquals( 0, dfa.getFlushes() );
+		assertTrue( dfa.getCachedStates() <= 16 );
+	}
+
+	public void testBoundedCache() {
+		LazyDFA dfa = nfa.lazy(4);
+		for ( String input : DeterminizerTest.strings("ab", 10) ) {
+			assertEquals( input, nfa.compute(input), dfa.compute(input) );
+			assertTrue( dfa.getCachedStates() <= 4 );
+		}
+		assertTrue( dfa.getFlushes() > 0 );
+	}
+
+	public void testThrashing() {
+		LazyDFA dfa = nfa.lazy(2);
+		StringBuilder input = new StringBuilder();
+		for ( int i = 0; i < 1000; i++ ) {
+			input.append( i%3 == 0 ? 'a' : 'b' );
+		}
+		for ( String suffix : new String[] { "abbb", "babb", "aaaa", "bbbb" } ) {
+			String string = input + suffix;
+			assertEquals( nfa.compute(string), dfa.compute(string) );
+		}
+	}
+
+	public void testEpsilons() {
+		State s = State.next();
+		State a = State.next();
+		State b = State.next();
+		NFA machine = new NFA(s,a,b);
+		machine.makeInitial(s);
+		machine.addTransition(s, EPSILON, a);
+		machine.addTransition(a, 'a', b);
+		machine.addTransition(b, EPSILON, s);
+		machine.makeFinal(b);
+
+		LazyDFA dfa = machine.lazy();
+		assertTrue( dfa.compute("aaa") );
+		assertFalse( dfa.compute("") );
+		assertFalse( dfa.compute("ab") );
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.brukhman.jfa.automaton;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.brukhman.jfa.regex.RegexParser;
+
+import junit.framework.TestCase;
+
+
+public class MappedDFATest extends TestCase {
+
+	private CompiledDFA dfa;
+
+	public void setUp() {
+		dfa = RegexParser.parse("([a-z]+|\u4e00[0-9])*(x|\ud83d\ude00)?").determinize().compile().minimize();
+	}
+
+	public void testLoad() throws IOException {
+		File file = File.createTempFile("dfa", ".bin");
+		file.deleteOnExit();
+		try {
+			MappedDFA.write(dfa, file);
+			MappedDFA mapped = MappedDFA.load(file);
+			assertEquals( dfa.getStateCount(), mapped.getStateCount() );
+			assertEquals( dfa.getInitial(), mapped.getInitial() );
+
+			CompiledDFA copy = mapped.toCompiledDFA();
+			Random random = new Random(23);
+			String symbols = "az\u4e00\u4e0109x\ud83d\ude00A";
+			for ( int n = 0; n < 1000; n++ ) {
+				StringBuilder input = new StringBuilder();
+				for ( int length = random.nextInt(8); length > 0; length-- ) {
+					input.append( symbols.charAt(random.nextInt(symbols.length())) );
+				}
+				String string = input.toString();
+				assertEquals( string, dfa.compute(string), mapped.compute(string) );
+				assertEquals( string, dfa.compute(string), copy.compute(string) );
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testCorrupt() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MappedDFA.write(dfa, output);
+		byte[] bytes = output.toByteArray();
+		assertNotNull( MappedDFA.wrap(ByteBuffer.wrap(bytes)) );
+
+		try {
+			MappedDFA.wrap( ByteBuffer.wrap(bytes, 0, bytes.length-4) );
+			fail("The automaton is truncated.");
+		} catch ( IllegalArgumentException e ) {
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+		int rangeCount = buffer.getInt(20);
+		buffer.putInt(4*(6+rangeCount), buffer.getInt(8));
+		try {
+			MappedDFA.wrap(buffer);
+			fail("A range class is out of bounds.");
+		} catch ( IllegalArgumentException e ) {
+		}
+		bytes[7] = 2;
+		try {
+			MappedDFA.wrap( ByteBuffer.wrap(bytes) );
+			fail("The version is unknown.");
+		} catch ( IllegalArgumentException e ) {
+		}
+	}
+
+	public void testOverflow() {
+		// 65536 states of 65536 classes, whose size overflows an int to 0
+		ByteBuffer buffer = ByteBuffer.allocate(4*(6 + 2 + 65536/32));
+		buffer.putInt(MappedDFA.MAGIC).putInt(MappedDFA.VERSION);
+		buffer.putInt(65536).putInt(65536).putInt(1).putInt(1);
+		buffer.putInt(0).putInt(0);
+		buffer.rewind();
+		try {
+			MappedDFA.wrap(buffer);
+			fail("The automaton is truncated.");
+		} catch ( IllegalArgumentException e ) {
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+
+public class MatchStatisticsTest extends TestCase {
+
+	private NFA nfa;
+	private MatchStatistics statistics;
+
+	public void setUp() {
+		// accept (a|b)*a(a|b)(a|b)(a|b)
+		State[] states = new State[5];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		nfa.addTransition(states[0], 'a', states[0]);
+		nfa.addTransition(states[0], 'b', states[0]);
+		nfa.addTransition(states[0], 'a', states[1]);
+		for ( int i = 1; i < 4; i++ ) {
+			nfa.addTransition(states[i], 'a', states[i+1]);
+			nfa.addTransition(states[i], 'b', states[i+1]);
+		}
+		nfa.makeFinal(states[4]);
+		statistics = MatchStatistics.create();
+	}
+
+	public void testBuckets() {
+		assertEquals( 0, MatchStatistics.bucket(0) );
+		assertEquals( 1, MatchStatistics.bucket(1) );
+		assertEquals( 2, MatchStatistics.bucket(2) );
+		assertEquals( 2, MatchStatistics.bucket(3) );
+		assertEquals( 3, MatchStatistics.bucket(4) );
+		assertEquals( 31, MatchStatistics.bucket(Integer.MAX_VALUE) );
+	}
+
+	public void testSimulator() {
+		NFASimulator simulator = nfa.simulator();
+		simulator.setListener(statistics);
+		assertTrue( simulator.compute("aaaa") );
+		assertFalse( simulator.compute("b") );
+
+		assertEquals( 2, statistics.getComputations() );
+		assertEquals( 1, statistics.getAccepted() );
+		assertEquals( 5, statistics.getCharacters() );
+		assertEquals( 5, statistics.getSteps() );
+		assertEquals( 5, statistics.getMaxActiveStates() );
+		assertTrue( statistics.getExpansions() >= statistics.getSteps() );
+		long[] histogram = statistics.getActiveStateHistogram();
+		// sizes 2, 3, 4, 5 and 1
+		assertEquals( 2, histogram[MatchStatistics.bucket(5)] );
+		assertEquals( 1, histogram[MatchStatistics.bucket(1)] );
+		long steps = 0;
+		for ( long count : histogram ) {
+			steps += count;
+		}
+		assertEquals( 5, steps );
+
+		simulator.setListener(null);
+		simulator.compute("aaaa");
+		assertEquals( 2, statistics.getComputations() );
+	}
+
+	public void testLazy() {
+		LazyDFA dfa = nfa.lazy();
+		dfa.setListener(statistics);
+		dfa.compute("abab");
+		assertEquals( 0, statistics.getCacheHits() );
+		assertEquals( 4, statistics.getCacheMisses() );
+		dfa.compute("abab");
+		assertEquals( 4, statistics.getCacheHits() );
+		assertEquals( 4, statistics.getCacheMisses() );
+		assertEquals( 2, statistics.getComputations() );
+
+		statistics.reset();
+		assertEquals( 0, statistics.getCacheHits() );
+		assertEquals( 0, statistics.getComputations() );
+	}
+
+	public void testNFA() {
+		nfa.setListener(statistics);
+		assertTrue( nfa.compute("baaaa") );
+		nfa.matcher().feed("ab");
+		assertEquals( 1, statistics.getComputations() );
+		assertEquals( 7, statistics.getSteps() );
+		assertEquals( 5, statistics.getMaxActiveStates() );
+
+		nfa.setListener(null);
+		nfa.compute("baaaa");
+		assertEquals( 1, statistics.getComputations() );
+	}
+
+	public void testThreads() throws InterruptedException {
+		final NFASimulator[] simulators = new NFASimulator[4];
+		ExecutorService executor = Executors.newFixedThreadPool(simulators.length);
+		for ( int i = 0; i < simulators.length; i++ ) {
+			final NFASimulator simulator = nfa.simulator();
+			simulator.setListener(statistics);
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for ( int j = 0; j < 1000; j++ ) {
+						simulator.compute("abab");
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue( executor.awaitTermination(1, TimeUnit.MINUTES) );
+
+		assertEquals( 4000, statistics.getComputations() );
+		assertEquals( 4000, statistics.getAccepted() );
+		assertEquals( 16000, statistics.getCharacters() );
+		assertEquals( 16000, statistics.getSteps() );
+	}
+
+	public void testFinishedThreads() throws InterruptedException {
+		for ( int i = 0; i < 1000; i++ ) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					statistics.computed(3, 10, true);
+				}
+			};
+			thread.start();
+			thread.join();
+		}
+		statistics.computed(1, 10, false);
+		assertEquals( 1001, statistics.getComputations() );
+		assertEquals( 1000, statistics.getAccepted() );
+		assertEquals( 3001, statistics.getCharacters() );
+		assertTrue( statistics.getCountersSize() <= 32 );
+
+		statistics.reset();
+		assertEquals( 0, statistics.getComputations() );
+	}
+
+}
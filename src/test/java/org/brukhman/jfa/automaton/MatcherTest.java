@@ -0,0 +1,95 @@
+package org.brukhman.jfa.automaton;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+public class MatcherTest extends TestCase {
+
+	private NFA nfa;
+	private String input;
+
+	public void setUp() {
+		// accept (a|b)*a(a|b)(a|b)(a|b)
+		State[] states = new State[5];
+		for ( int i = 0; i < states.length; i++ ) {
+			states[i] = State.next();
+		}
+		nfa = new NFA(states);
+		nfa.makeInitial(states[0]);
+		nfa.addTransition(states[0], 'a', states[0]);
+		nfa.addTransition(states[0], 'b', states[0]);
+		nfa.addTransition(states[0], 'a', states[1]);
+		for ( int i = 1; i < 4; i++ ) {
+			nfa.addTransition(states[i], 'a', states[i+1]);
+			nfa.addTransition(states[i], 'b', states[i+1]);
+		}
+		nfa.makeFinal(states[4]);
+
+		Random random = new Random(7);
+		StringBuilder builder = new StringBuilder();
+		for ( int i = 0; i < 20000; i++ ) {
+			builder.append( random.nextBoolean() ? 'a' : 'b' );
+		}
+		input = builder.toString();
+	}
+
+	private Matcher[] matchers() {
+		return new Matcher[] {
+				nfa.matcher(),
+				nfa.simulator().matcher(),
+				nfa.lazy().matcher(),
+				nfa.lazy(2).matcher(),
+				nfa.determinize().compile().matcher(),
+		};
+	}
+
+	public void testChunks() {
+		char[] chars = input.toCharArray();
+		Random random = new Random(11);
+		for ( Matcher matcher : matchers() ) {
+			int offset = 0;
+			while ( offset < chars.length ) {
+				int length = Math.min(random.nextInt(100), chars.length-offset);
+				matcher.feed(chars, offset, length);
+				offset += length;
+				String prefix = input.substring(0, offset);
+				assertEquals( prefix.length() >= 4 && prefix.charAt(offset-4) == 'a', matcher.isAccepting() );
+			}
+			matcher.reset();
+			assertFalse( matcher.isAccepting() );
+			assertTrue( matcher.feed("abbb").isAccepting() );
+		}
+	}
+
+	public void testSources() throws IOException {
+		boolean expected = nfa.compute(input);
+		for ( Matcher matcher : matchers() ) {
+			assertEquals( expected, matcher.feed(new StringReader(input)).isAccepting() );
+			matcher.reset();
+
+			CharBuffer buffer = CharBuffer.wrap(input);
+			assertEquals( expected, matcher.feed(buffer).isAccepting() );
+			assertEquals( 0, buffer.remaining() );
+			matcher.reset();
+
+			buffer = CharBuffer.wrap(input.toCharArray(), 100, input.length()-100);
+			matcher.feed(input.substring(0, 100));
+			assertEquals( expected, matcher.feed(buffer.slice()).isAccepting() );
+		}
+	}
+
+	public void testDead() throws IOException {
+		for ( Matcher matcher : matchers() ) {
+			assertFalse( matcher.isDead() );
+			matcher.feed("abc");
+			assertTrue( matcher.isDead() );
+			assertFalse( matcher.feed(new StringReader(input)).isAccepting() );
+		}
+	}
+
+}
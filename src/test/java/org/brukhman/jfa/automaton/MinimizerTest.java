@@ -0,0 +1,110 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+public class MinimizerTest extends TestCase {
+
+	/**
+	 * A table that counts a's modulo the given number of states, accepting
+	 * when the count is divisible by the given divisor.
+	 */
+	private DeterministicTable counter( int states, int divisor ) {
+		DeterministicTable table = new DeterministicTable();
+		State[] counts = new State[states];
+		for ( int i = 0; i < states; i++ ) {
+			counts[i] = State.next();
+			table.addStates(counts[i]);
+		}
+		for ( int i = 0; i < states; i++ ) {
+			table.addTransition(counts[i], 'a', counts[(i+1)%states]);
+			table.addTransition(counts[i], 'b', counts[i]);
+			if ( i%divisor == 0 ) {
+				table.makeFinal(counts[i]);
+			}
+		}
+		table.makeInitial(counts[0]);
+		return table;
+	}
+
+	/**
+	 * A random table with a single symbol class per letter.
+	 */
+	private CompiledDFA random( Random random, int states, String symbols ) {
+		DeterministicTable table = new DeterministicTable();
+		State[] created = new State[states];
+		for ( int i = 0; i < states; i++ ) {
+			created[i] = State.next();
+			table.addStates(created[i]);
+			if ( random.nextInt(3) == 0 ) {
+				table.makeFinal(created[i]);
+			}
+		}
+		for ( int i = 0; i < states; i++ ) {
+			for ( char symbol : symbols.toCharArray() ) {
+				if ( random.nextInt(8) != 0 ) {
+					table.addTransition(created[i], symbol, created[random.nextInt(states)]);
+				}
+			}
+		}
+		table.makeInitial(created[0]);
+		return table.compile();
+	}
+
+	public void testMinimize() {
+		CompiledDFA dfa = counter(6, 3).compile();
+		CompiledDFA minimal = dfa.minimize();
+
+		// three counting states and the dead state
+		assertEquals( 4, minimal.getStateCount() );
+		for ( String input : DeterminizerTest.strings("abc", 7) ) {
+			assertEquals( input, dfa.compute(input), minimal.compute(input) );
+		}
+	}
+
+	public void testMinimizeTable() {
+		DeterministicTable table = counter(12, 4).minimize();
+		assertEquals( 4, table.getStates().size() );
+		assertTrue( table.compile().compute("aaaabaaaa") );
+		assertFalse( table.compile().compute("aaaabaaa") );
+	}
+
+	public void testMinimizeEmpty() {
+		DeterministicTable table = new DeterministicTable();
+		State start = table.newState(), end = table.newState();
+		table.makeInitial(start);
+		table.makeFinal(end);
+		table.addTransition(start, 'a', start);
+
+		DeterministicTable minimal = table.minimize();
+		assertEquals( 1, minimal.getStates().size() );
+		assertNotNull( minimal.getInitial() );
+		CompiledDFA dfa = minimal.compile();
+		assertFalse( dfa.compute("") );
+		assertFalse( dfa.compute("aa") );
+	}
+
+	public void testRandom() {
+		Random random = new Random(42);
+		for ( int trial = 0; trial < 20; trial++ ) {
+			CompiledDFA dfa = random(random, 30, "abc");
+			CompiledDFA minimal = dfa.minimize();
+
+			assertTrue( minimal.getStateCount() <= dfa.getStateCount() );
+			assertEquals( minimal.getStateCount(), minimal.minimize().getStateCount() );
+			for ( String input : DeterminizerTest.strings("abcd", 6) ) {
+				assertEquals( input, dfa.compute(input), minimal.compute(input) );
+			}
+		}
+	}
+
+	public void testLarge() {
+		CompiledDFA dfa = random(new Random(7), 100000, "ab");
+		CompiledDFA minimal = dfa.minimize();
+		assertTrue( minimal.getStateCount() <= dfa.getStateCount() );
+		assertEquals( minimal.getStateCount(), minimal.minimize().getStateCount() );
+	}
+
+}
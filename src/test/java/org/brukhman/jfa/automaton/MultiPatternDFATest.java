@@ -0,0 +1,55 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.brukhman.jfa.regex.RegexParser;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+
+public class MultiPatternDFATest extends TestCase {
+
+	private final static String[] PATTERNS = {
+		"a*", "ab", "a(b|c)*", "[a-c]*c", "x", "(ab)*", "b+", "[a-c]*c[a-c]*",
+	};
+
+	public void testMatches() {
+		List<NFA> patterns = Lists.newArrayList();
+		for ( String pattern : PATTERNS ) {
+			patterns.add( RegexParser.parse(pattern) );
+		}
+		MultiPatternDFA dfa = MultiPatternDFA.compile(patterns);
+		assertEquals( PATTERNS.length, dfa.getPatternCount() );
+
+		Random random = new Random(19);
+		for ( int n = 0; n < 1000; n++ ) {
+			StringBuilder input = new StringBuilder();
+			for ( int length = random.nextInt(7); length > 0; length-- ) {
+				input.append( "abcx".charAt(random.nextInt(4)) );
+			}
+			String string = input.toString();
+			BitSet expected = new BitSet();
+			for ( int i = 0; i < PATTERNS.length; i++ ) {
+				expected.set(i, patterns.get(i).compute(string));
+			}
+			assertEquals( string, expected, dfa.matches(string) );
+			assertEquals( string, !expected.isEmpty(), dfa.compute(string) );
+		}
+	}
+
+	public void testMinimalLabels() {
+		// the same language twice: one state per distinct set of patterns
+		List<NFA> patterns = Lists.newArrayList( RegexParser.parse("(ab)*"), RegexParser.parse("(ab)*|(ab)*") );
+		MultiPatternDFA dfa = MultiPatternDFA.compile(patterns);
+		CompiledDFA automaton = dfa.getAutomaton();
+		assertEquals( 3, automaton.getStateCount() );
+		int[] both = dfa.getPatterns(automaton.getInitial());
+		assertEquals( 2, both.length );
+		assertEquals( 0, dfa.getPatterns(CompiledDFA.DEAD).length );
+	}
+
+}
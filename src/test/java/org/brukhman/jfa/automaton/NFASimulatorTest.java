@@ -0,0 +1,56 @@
+package org.brukhman.jfa.automaton;
+
+import static org.brukhman.jfa.automaton.Symbols.EPSILON;
+
+import junit.framework.TestCase;
+
+
+public class NFASimulatorTest extends TestCase {
+
+	public void testSparseSet() {
+		SparseSet set = new SparseSet(10);
+		assertTrue( set.add(7) );
+		assertTrue( set.add(3) );
+		assertFalse( set.add(7) );
+		assertEquals( 2, set.size() );
+		assertEquals( 7, set.get(0) );
+		assertTrue( set.contains(3) );
+		assertFalse( set.contains(0) );
+
+		set.clear();
+		assertEquals( 0, set.size() );
+		assertFalse( set.contains(7) );
+		assertTrue( set.add(0) );
+	}
+
+	public void testCompute() {
+		State s = State.next();
+		State a = State.next();
+		State b = State.next();
+		State e = State.next();
+		State d = State.next();
+		State o = State.next();
+		State h = State.next();
+
+		NFA nfa = new NFA(s,a,b,e,d,o,h);
+		nfa.makeInitial(s);
+		nfa.addTransition(a, 'a', b);
+		nfa.addTransition(b, 'b', e);
+		nfa.addTransition(e, 'e', e);
+		nfa.addTransition(d, 'd', o);
+		nfa.addTransition(o, 'o', h);
+		nfa.addTransition(h, 'h', h);
+		nfa.makeFinal(e);
+		nfa.makeFinal(h);
+		nfa.addTransition(s, EPSILON, a);
+		nfa.addTransition(s, EPSILON, d);
+		nfa.addTransition(e, EPSILON, s);
+		nfa.addTransition(h, EPSILON, s);
+
+		NFASimulator simulator = nfa.simulator();
+		for ( String input : DeterminizerTest.strings("abdehox", 5) ) {
+			assertEquals( input, nfa.compute(input), simulator.compute(input) );
+		}
+	}
+
+}
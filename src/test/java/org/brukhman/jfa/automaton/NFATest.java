@@ -116,5 +116,43 @@ public class NFATest extends TestCase {
 		
 	}
 	
+	public void testFreeze() {
+		Automaton frozen = nfa.freeze();
+		nfa.makeFinal(s);
+		
+		assertTrue( nfa.compute("") );
+		assertFalse( frozen.compute("") );
+		assertTrue( frozen.compute("abedoh") );
+		assertFalse( frozen.compute("abd") );
+		
+		try {
+			new NFA().freeze();
+			fail("An empty machine is not valid.");
+		} catch (IllegalStateException e) {
+		}
+	}
+	
+	public void testFreezeLarge() {
+		// accept a^200, too many positions to be bit-parallel
+		NFA chain = new NFA();
+		State state = chain.newState();
+		chain.makeInitial(state);
+		for ( int i = 0; i < 200; i++ ) {
+			State next = chain.newState();
+			chain.addTransition(state, 'a', next);
+			state = next;
+		}
+		chain.makeFinal(state);
+		
+		Automaton frozen = chain.freeze();
+		assertFalse( frozen instanceof BitParallelNFA );
+		StringBuilder input = new StringBuilder();
+		for ( int i = 0; i < 199; i++ ) {
+			input.append('a');
+		}
+		assertFalse( frozen.compute(input.toString()) );
+		assertTrue( frozen.compute(input.append('a').toString()) );
+		assertFalse( frozen.compute(input.append('a').toString()) );
+	}
 
 }
@@ -90,5 +90,47 @@ public class NondeterministicTableTest extends TestCase {
 		assertEquals( table.transition(a, 'c'), ImmutableSet.of());
 	}
 	
+	public void testRangeTransitions() {
+		table.addTransition(a, 'a', 'm', c);
+		table.addTransition(a, 'k', 'z', d);
+		
+		assertEquals( table.transition(a, 'a'), ImmutableSet.of(b, c));
+		assertEquals( table.transition(a, 'f'), ImmutableSet.of(c));
+		assertEquals( table.transition(a, 'l'), ImmutableSet.of(c, d));
+		assertEquals( table.transition(a, 'z'), ImmutableSet.of(d));
+		assertEquals( table.transition(a, '{'), ImmutableSet.of());
+		assertFalse( table.getSymbols().contains('f') );
+	}
+	
+	public void testIllegalRange() {
+		try {
+			table.addTransition(a, 0, 'z', b);
+			fail("Ranges may not contain epsilon.");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			table.addTransition(a, 'z', 'a', b);
+			fail("Ranges may not be empty.");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	public void testNewState() {
+		NondeterministicTable other = NondeterministicTable.create();
+		State first = other.newState();
+		State second = other.newState();
+		assertEquals( Integer.valueOf(0), first.getName() );
+		assertEquals( Integer.valueOf(1), second.getName() );
+		assertEquals( ImmutableSet.of(first, second), other.getStates() );
+		
+		State mine = table.newState();
+		assertEquals( first.getName(), mine.getName() );
+		assertFalse( first.equals(mine) );
+		try {
+			table.addStates(first);
+			fail("States belong to the table that created them.");
+		} catch (IllegalArgumentException e) {
+		}
+	}
 
 }
@@ -0,0 +1,92 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+
+public class OffHeapDFATest extends TestCase {
+
+	private CompiledDFA dfa;
+
+	public void setUp() {
+		// accept (ab)*c
+		DeterministicTable table = new DeterministicTable();
+		State a = table.newState(), b = table.newState(), c = table.newState();
+		table.makeInitial(a);
+		table.addTransition(a, 'a', b);
+		table.addTransition(b, 'b', a);
+		table.addTransition(a, 'c', c);
+		table.makeFinal(c);
+		dfa = table.compile();
+	}
+
+	public void testCopy() {
+		OffHeapDFA copy = OffHeapDFA.copyOf(dfa);
+		assertEquals( dfa.getStateCount(), copy.getStateCount() );
+		assertEquals( 1, copy.getTransitionSize() );
+		for ( String input : DeterminizerTest.strings("abcx", 6) ) {
+			assertEquals( input, dfa.compute(input), copy.compute(input) );
+		}
+		assertEquals( CompiledDFA.DEAD, copy.step(copy.getInitial(), 'x') );
+
+		Matcher matcher = copy.matcher();
+		assertFalse( matcher.feed("ab").isAccepting() );
+		assertTrue( matcher.feed("abc").isAccepting() );
+		assertTrue( matcher.feed("c").isDead() );
+	}
+
+	public void testComplement() {
+		CompiledDFA complement = dfa.complement();
+		OffHeapDFA copy = OffHeapDFA.copyOf(complement);
+		for ( String input : DeterminizerTest.strings("abcx", 5) ) {
+			assertEquals( input, complement.compute(input), copy.compute(input) );
+		}
+	}
+
+	public void testSegments() {
+		// a cycle of a's, accepting multiples of n, over many small segments
+		for ( int n : new int[] { 200, 1000, 70000 } ) {
+			Alphabet alphabet = Alphabet.create(Arrays.asList('a'));
+			OffHeapDFA.Builder builder = OffHeapDFA.builder(alphabet, n+1, 8);
+			for ( int state = 1; state <= n; state++ ) {
+				builder.setTransition(state, 'a', state % n + 1);
+			}
+			OffHeapDFA cycle = builder.setInitial(1).setAccepting(1).build();
+			assertEquals( n <= 255 ? 1 : n < 65536 ? 2 : 4, cycle.getTransitionSize() );
+
+			StringBuilder input = new StringBuilder();
+			for ( int i = 0; i < n; i++ ) {
+				input.append('a');
+			}
+			assertTrue( cycle.compute("") );
+			assertTrue( cycle.compute(input) );
+			assertFalse( cycle.compute(input.substring(1)) );
+			assertFalse( cycle.compute(input + "a") );
+			assertFalse( cycle.compute("ab") );
+		}
+	}
+
+	public void testBuilder() {
+		Alphabet alphabet = Alphabet.create(Arrays.asList('a'));
+		OffHeapDFA.Builder builder = OffHeapDFA.builder(alphabet, 2);
+		try {
+			builder.setTransition(1, 'a', 2);
+			fail();
+		} catch ( IndexOutOfBoundsException e ) {
+		}
+		try {
+			builder.setTransition(CompiledDFA.DEAD, 'a', 1);
+			fail();
+		} catch ( IllegalArgumentException e ) {
+		}
+		OffHeapDFA dfa = builder.setTransition(1, 'a', 1).setInitial(1).setAccepting(1).build();
+		assertTrue( dfa.compute("aaa") );
+		try {
+			builder.setAccepting(1);
+			fail();
+		} catch ( IllegalStateException e ) {
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+
+public class ParallelDFATest extends TestCase {
+
+	private CompiledDFA dfa;
+	private ExecutorService executor;
+
+	public void setUp() {
+		// accept strings over a, b, c with an even number of a's and ending in b
+		State even = State.next();
+		State odd = State.next();
+		State evenB = State.next();
+		State oddB = State.next();
+		DeterministicTable table = new DeterministicTable();
+		table.addStates(even, odd, evenB, oddB);
+		table.makeInitial(even);
+		table.makeFinal(evenB);
+		table.addTransition(even, 'a', odd);
+		table.addTransition(odd, 'a', even);
+		table.addTransition(evenB, 'a', odd);
+		table.addTransition(oddB, 'a', even);
+		table.addTransition(even, 'b', evenB);
+		table.addTransition(odd, 'b', oddB);
+		table.addTransition(evenB, 'b', evenB);
+		table.addTransition(oddB, 'b', oddB);
+		table.addTransition(even, 'c', even);
+		table.addTransition(odd, 'c', odd);
+		table.addTransition(evenB, 'c', even);
+		table.addTransition(oddB, 'c', odd);
+		dfa = table.compile();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	public void testCompute() throws InterruptedException {
+		Random random = new Random(5);
+		for ( int n = 0; n < 50; n++ ) {
+			StringBuilder input = new StringBuilder();
+			for ( int length = random.nextInt(5000); length > 0; length-- ) {
+				input.append( "abcab".charAt(random.nextInt(5)) );
+			}
+			if ( random.nextInt(10) == 0 ) {
+				input.insert(random.nextInt(input.length()+1), 'x');
+			}
+			String string = input.toString();
+			assertEquals( string, dfa.compute(string), ParallelDFA.compute(dfa, string, executor, 1+random.nextInt(300)) );
+		}
+	}
+
+	public void testMapping() {
+		String input = "cabcaab";
+		int[] mapping = ParallelDFA.mapping(dfa, input, 0, input.length());
+		for ( int state = 0; state < dfa.getStateCount(); state++ ) {
+			int expected = state;
+			for ( int i = 0; i < input.length(); i++ ) {
+				expected = dfa.step(expected, input.charAt(i));
+			}
+			assertEquals( expected, mapping[state] );
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.brukhman.jfa.automaton;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+
+public class ProductDFATest extends TestCase {
+
+	private CompiledDFA evenA, endsB;
+
+	public void setUp() {
+		// an even number of a's, over a and b
+		DeterministicTable even = new DeterministicTable();
+		State e = even.newState(), o = even.newState();
+		even.makeInitial(e);
+		even.makeFinal(e);
+		even.addTransition(e, 'a', o);
+		even.addTransition(o, 'a', e);
+		even.addTransition(e, 'b', e);
+		even.addTransition(o, 'b', o);
+		evenA = even.compile();
+
+		// ends in b, over b and c
+		DeterministicTable ends = new DeterministicTable();
+		State s = ends.newState(), t = ends.newState();
+		ends.makeInitial(s);
+		ends.makeFinal(t);
+		ends.addTransition(s, 'b', t);
+		ends.addTransition(t, 'b', t);
+		ends.addTransition(s, 'c', s);
+		ends.addTransition(t, 'c', s);
+		endsB = ends.compile();
+	}
+
+	public void testOperations() {
+		ProductDFA intersection = evenA.intersection(endsB);
+		ProductDFA union = evenA.union(endsB);
+		ProductDFA difference = evenA.difference(endsB);
+		for ( String input : DeterminizerTest.strings("abcx", 6) ) {
+			boolean a = evenA.compute(input), b = endsB.compute(input);
+			assertEquals( input, a && b, intersection.compute(input) );
+			assertEquals( input, a || b, union.compute(input) );
+			assertEquals( input, a && !b, difference.compute(input) );
+		}
+		// the operands only share b
+		assertTrue( intersection.compute("bb") );
+		assertFalse( intersection.compute("aab") );
+		assertFalse( intersection.compute("cb") );
+		assertTrue( union.compute("cb") );
+		assertFalse( difference.compute("ba") );
+		assertTrue( difference.compute("") );
+
+		// complements accept characters that neither operand knows
+		ProductDFA everything = evenA.union(evenA.complement());
+		ProductDFA neither = endsB.complement().difference(evenA);
+		for ( String input : DeterminizerTest.strings("abcx", 6) ) {
+			boolean a = evenA.compute(input), b = endsB.compute(input);
+			assertTrue( input, everything.compute(input) );
+			assertEquals( input, !b && !a, neither.compute(input) );
+		}
+		assertTrue( everything.compute("x\u4e00") );
+		CompiledDFA compiled = everything.compile();
+		for ( String input : DeterminizerTest.strings("abx", 4) ) {
+			assertTrue( input, compiled.compute(input + "\u4e00") );
+		}
+	}
+
+	public void testLazy() {
+		ProductDFA difference = evenA.difference(endsB);
+		// dead and initial
+		assertEquals( 2, difference.getStateCount() );
+		difference.compute("bb");
+		assertEquals( 3, difference.getStateCount() );
+
+		CompiledDFA compiled = difference.compile();
+		assertEquals( difference.getStateCount(), compiled.getStateCount() );
+		for ( String input : DeterminizerTest.strings("abc", 6) ) {
+			assertEquals( input, difference.compute(input), compiled.compute(input) );
+		}
+	}
+
+	public void testMatcher() {
+		ProductDFA intersection = evenA.intersection(endsB);
+		Matcher matcher = intersection.matcher();
+		assertFalse( matcher.isAccepting() );
+		assertTrue( matcher.feed("b").isAccepting() );
+		assertTrue( matcher.feed("b").isAccepting() );
+		assertTrue( matcher.feed("c").isDead() );
+		matcher.reset();
+		assertTrue( matcher.feed("bb").isAccepting() );
+	}
+
+	public void testComplement() {
+		CompiledDFA complement = endsB.complement();
+		for ( String input : DeterminizerTest.strings("abc", 6) ) {
+			assertEquals( input, !endsB.compute(input), complement.compute(input) );
+		}
+		assertTrue( complement.compute("b\u4e00") );
+		assertFalse( complement.complement().compute("b\u4e00") );
+
+		CompiledDFA minimal = complement.minimize();
+		CompiledDFA table = complement.toTable().compile();
+		for ( String input : DeterminizerTest.strings("abc", 5) ) {
+			assertEquals( input, complement.compute(input), minimal.compute(input) );
+			assertEquals( input, complement.compute(input), table.compute(input) );
+		}
+
+		CompiledDFA encoded = Utf8.encode(complement).determinize().compile();
+		assertTrue( encoded.compute(ByteBuffer.wrap(new byte[] { 'x' })) );
+		assertFalse( encoded.compute(ByteBuffer.wrap(new byte[] { 'c', 'b' })) );
+	}
+
+}
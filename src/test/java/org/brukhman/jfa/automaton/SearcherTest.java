@@ -0,0 +1,132 @@
+package org.brukhman.jfa.automaton;
+
+import java.util.List;
+import java.util.Random;
+
+import org.brukhman.jfa.regex.RegexParser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+
+public class SearcherTest extends TestCase {
+
+	private final static String[] PATTERNS = {
+		"ab*", "a|ab|abc", "(ab)*", "b*", "[0-9]+(\\.[0-9]+)?", "c[^c]*c", "x",
+	};
+
+	private static CompiledDFA compile( String pattern ) {
+		return RegexParser.parse(pattern).determinize().compile().minimize();
+	}
+
+	/**
+	 * Finds the leftmost-longest match by trying every substring.
+	 */
+	private static Match naive( CompiledDFA dfa, String input, int from ) {
+		for ( int start = from; start <= input.length(); start++ ) {
+			for ( int end = input.length(); end >= start; end-- ) {
+				if ( dfa.compute(input.substring(start, end)) ) {
+					return new Match(start, end);
+				}
+			}
+		}
+		return null;
+	}
+
+	public void testFind() {
+		Random random = new Random(17);
+		for ( String pattern : PATTERNS ) {
+			CompiledDFA dfa = compile(pattern);
+			Searcher searcher = dfa.searcher();
+			for ( int n = 0; n < 300; n++ ) {
+				StringBuilder input = new StringBuilder();
+				for ( int length = random.nextInt(12); length > 0; length-- ) {
+					input.append( "abc1.\0x".charAt(random.nextInt(7)) );
+				}
+				String string = input.toString();
+				int from = random.nextInt(string.length()+1);
+				assertEquals( pattern + " in " + string + " from " + from,
+						naive(dfa, string, from), searcher.find(string, from) );
+			}
+		}
+	}
+
+	public void testFindAll() {
+		Searcher searcher = compile("[0-9]+").searcher();
+		assertEquals(
+				ImmutableList.of(new Match(2, 4), new Match(7, 8), new Match(10, 13)),
+				searcher.findAll("ab12cde3fg456")
+		);
+		assertEquals( ImmutableList.of(), searcher.findAll("abc") );
+
+		List<Match> empty = Lists.newArrayList();
+		for ( int i = 0; i <= 3; i++ ) {
+			empty.add( new Match(i, i) );
+		}
+		assertEquals( empty, compile("b*").searcher().findAll("aaa") );
+		assertEquals(
+				ImmutableList.of(new Match(0, 0), new Match(1, 3), new Match(3, 3)),
+				compile("b*").searcher().findAll("abb")
+		);
+	}
+
+	/**
+	 * A string of a's that counts the characters read from it.
+	 */
+	private static class CountingSequence implements CharSequence {
+
+		private final int length;
+		private int reads;
+
+		CountingSequence( int length ) {
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt( int index ) {
+			reads++;
+			return 'a';
+		}
+
+		@Override
+		public CharSequence subSequence( int start, int end ) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	public void testLinear() {
+		// every a matches, but each could also begin a much longer match
+		Searcher searcher = compile("a|a[ab]*c").searcher();
+		int n = 100000;
+		CountingSequence input = new CountingSequence(n);
+		assertEquals( n, searcher.findAll(input).size() );
+		assertTrue( "read " + input.reads + " characters", input.reads <= 3*n );
+
+		// a trap state that is not minimal must not stretch the scan either
+		NFA nfa = RegexParser.parse("a|a[ab]*c");
+		State trap = nfa.newState(), start = nfa.getInitial();
+		nfa.addTransition(start, 'a', trap);
+		nfa.addTransition(trap, 'a', trap);
+		input = new CountingSequence(n);
+		assertEquals( n, nfa.determinize().compile().searcher().findAll(input).size() );
+		assertTrue( "read " + input.reads + " characters", input.reads <= 3*n );
+	}
+
+	public void testComplement() {
+		CompiledDFA dfa = compile("a*").complement();
+		Searcher searcher = dfa.searcher();
+		assertEquals( new Match(0, 1), searcher.find("x", 0) );
+		assertEquals( ImmutableList.of(new Match(0, 2)), searcher.findAll("ax") );
+		for ( String input : DeterminizerTest.strings("abx", 5) ) {
+			assertEquals( input, naive(dfa, input, 0), searcher.find(input, 0) );
+		}
+	}
+
+}
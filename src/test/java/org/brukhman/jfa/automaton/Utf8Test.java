@@ -0,0 +1,83 @@
+package org.brukhman.jfa.automaton;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+public class Utf8Test extends TestCase {
+
+	/** Code points around the boundaries of the encoded lengths. */
+	private final static int[] CODE_POINTS = {
+		'a', 'z', 0x7F, 0x80, 0xE9, 0x7FF, 0x800, 0x20AC, 0xD7FF, 0xE000, 0xFFFF,
+		0x10000, 0x1F600, 0x1F64F, 0x1F650, 0x10FFFF
+	};
+
+	private static ByteBuffer utf8( String string ) throws UnsupportedEncodingException {
+		return ByteBuffer.wrap(string.getBytes("UTF-8"));
+	}
+
+	private static ByteBuffer bytes( int... bytes ) {
+		byte[] array = new byte[bytes.length];
+		for ( int i = 0; i < bytes.length; i++ ) {
+			array[i] = (byte)bytes[i];
+		}
+		return ByteBuffer.wrap(array);
+	}
+
+	public void testEncode() throws UnsupportedEncodingException {
+		// accept words of letters, 0x80..0x7FF, the euro sign and emoji, ending in a digit
+		State start = State.next();
+		State word = State.next();
+		State end = State.next();
+		NFA chars = new NFA(start, word, end);
+		chars.makeInitial(start);
+		chars.makeFinal(end);
+		chars.addTransition(start, Symbols.EPSILON, word);
+		chars.addTransition(word, 'a', 'z', word);
+		chars.addTransition(word, 0x80, 0x7FF, word);
+		chars.addTransition(word, '\u20ac', word);
+		chars.addTransition(word, 0x1F600, 0x1F64F, word);
+		chars.addTransition(word, '0', '9', end);
+
+		CompiledDFA bytes = Utf8.compile(chars);
+		Random random = new Random(3);
+		for ( int n = 0; n < 2000; n++ ) {
+			StringBuilder input = new StringBuilder();
+			for ( int length = random.nextInt(6); length > 0; length-- ) {
+				input.appendCodePoint( CODE_POINTS[random.nextInt(CODE_POINTS.length)] );
+			}
+			input.append( random.nextBoolean() ? "7" : "" );
+			String string = input.toString();
+			assertEquals( string, chars.compute(string), bytes.compute(utf8(string)) );
+		}
+	}
+
+	public void testWellFormed() throws UnsupportedEncodingException {
+		// accept any code point
+		State any = State.next();
+		DeterministicTable chars = new DeterministicTable();
+		chars.addStates(any);
+		chars.makeInitial(any);
+		chars.makeFinal(any);
+		chars.addTransition(any, 1, Character.MAX_CODE_POINT, any);
+
+		CompiledDFA bytes = Utf8.compile(chars);
+		StringBuilder input = new StringBuilder();
+		for ( int codePoint : CODE_POINTS ) {
+			input.appendCodePoint(codePoint);
+		}
+		assertTrue( bytes.compute(utf8(input.toString())) );
+
+		assertFalse( bytes.compute(bytes(0x80)) );				// stray continuation
+		assertFalse( bytes.compute(bytes(0xC0, 0x80)) );		// overlong
+		assertFalse( bytes.compute(bytes(0xE0, 0x80, 0x80)) );	// overlong
+		assertFalse( bytes.compute(bytes(0xED, 0xA0, 0x80)) );	// surrogate
+		assertFalse( bytes.compute(bytes(0xF4, 0x90, 0x80, 0x80)) );	// past 0x10FFFF
+		assertFalse( bytes.compute(bytes(0xE2, 0x82)) );		// truncated
+		assertTrue( bytes.compute(bytes(0xE2, 0x82, 0xAC)) );
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.brukhman.jfa.regex;
+
+import org.brukhman.jfa.automaton.Automaton;
+import org.brukhman.jfa.automaton.CompiledDFA;
+
+import junit.framework.TestCase;
+
+
+public class PatternCacheTest extends TestCase {
+
+	public void testGet() {
+		PatternCache cache = PatternCache.create(2, 100);
+		Automaton automaton = cache.get("(ab)*c");
+		assertTrue( automaton instanceof CompiledDFA );
+		assertEquals( 4, ((CompiledDFA)automaton).getStateCount() );
+		assertTrue( automaton.compute("ababc") );
+		assertSame( automaton, cache.get("(ab)*c") );
+
+		cache.get("a");
+		cache.get("(ab)*c");
+		cache.get("b");
+		assertEquals( 2, cache.size() );
+		assertSame( automaton, cache.get("(ab)*c") );
+	}
+
+	public void testExplosion() {
+		// the last 10 symbols must be remembered, which takes 2^10 states
+		PatternCache cache = PatternCache.create(2, 100);
+		Automaton automaton = cache.get("(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)");
+		assertFalse( automaton instanceof CompiledDFA );
+		assertTrue( automaton.compute("bbabbbbbbbbb") );
+		assertFalse( automaton.compute("bbbaaaaaaaaa") );
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.brukhman.jfa.regex;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.brukhman.jfa.automaton.NFA;
+
+import junit.framework.TestCase;
+
+
+public class RegexParserTest extends TestCase {
+
+	private final static String[] PATTERNS = {
+		"", "a", "abc", "a|b|", "(ab)*c", "a+b?", "(a|bc)*(c|)", "[a-c]+x?",
+		"[^a]*", "[]a]b", "[a\\-c]*", ".b.", "\\d+\\.\\d*", "\\w\\W\\s\\S",
+		"x\\*\\(", "(a*)*b", "a??", "\\u0061[\\u0062-\\u0063]",
+	};
+
+	private final static String SYMBOLS = "abcx1.-]*( \t_\u00e9";
+
+	public void testParse() {
+		Random random = new Random(13);
+		for ( String pattern : PATTERNS ) {
+			NFA nfa = RegexParser.parse(pattern);
+			Pattern expected = Pattern.compile(pattern);
+			for ( int n = 0; n < 500; n++ ) {
+				StringBuilder input = new StringBuilder();
+				for ( int length = random.nextInt(6); length > 0; length-- ) {
+					input.append( SYMBOLS.charAt(random.nextInt(SYMBOLS.length())) );
+				}
+				String string = input.toString();
+				assertEquals( pattern + " on " + string,
+						expected.matcher(string).matches(), nfa.compute(string) );
+			}
+		}
+	}
+
+	public void testCodePoints() {
+		NFA nfa = RegexParser.parse("[\ud83d\ude00-\ud83d\ude4f]+.");
+		assertTrue( nfa.compute("\ud83d\ude00\ud83d\ude4f\ud83d\ude50") );
+		assertTrue( nfa.compute("\ud83d\ude00x") );
+		assertFalse( nfa.compute("\ud83d\ude50x") );
+	}
+
+	public void testErrors() {
+		for ( String pattern : new String[] { "(a", "a)", "*a", "[a", "[z-a]", "\\q", "a\\", "\\u00", "\\u0000" } ) {
+			try {
+				RegexParser.parse(pattern);
+				fail(pattern);
+			} catch ( PatternSyntaxException e ) {
+			}
+		}
+	}
+
+}